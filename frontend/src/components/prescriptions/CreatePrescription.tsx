@@ -85,8 +85,6 @@ const CreatePrescription: React.FC<CreatePrescriptionProps> = ({
   useEffect(() => {
     if (isOpen) {
       fetchMedicines();
-      fetchCategories();
-      fetchLetters();
     }
   }, [isOpen]);
 
@@ -96,12 +94,16 @@ const CreatePrescription: React.FC<CreatePrescriptionProps> = ({
 
   const fetchMedicines = async () => {
     try {
-      console.log('Fetching medicines from:', API_CONFIG.MEDICINES.ALL);
-      const response = await apiCall(API_CONFIG.MEDICINES.ALL);
+      // One catalog request returns the medicine list plus category/letter facets
+      console.log('Fetching medicine catalog from:', API_CONFIG.MEDICINES.CATALOG);
+      const response = await apiCall(API_CONFIG.MEDICINES.CATALOG);
       console.log('Medicine fetch response status:', response.status);
       
       if (response.ok) {
-        const data = await response.json();
+        const catalog = await response.json();
+        const data = catalog.medicines || [];
+        setCategories(Object.keys(catalog.categoryCounts || {}));
+        setLetters(Object.keys(catalog.letterCounts || {}));
         console.log('Fetched medicines data:', data);
         console.log('Number of medicines fetched:', data.length);
         
@@ -196,30 +198,6 @@ const CreatePrescription: React.FC<CreatePrescriptionProps> = ({
     }
   };
 
-  const fetchCategories = async () => {
-    try {
-      const response = await apiCall(API_CONFIG.MEDICINES.CATEGORIES);
-      if (response.ok) {
-        const data = await response.json();
-        setCategories(data);
-      }
-    } catch (error) {
-      console.error('Error fetching categories:', error);
-    }
-  };
-
-  const fetchLetters = async () => {
-    try {
-      const response = await apiCall(API_CONFIG.MEDICINES.LETTERS);
-      if (response.ok) {
-        const data = await response.json();
-        setLetters(data);
-      }
-    } catch (error) {
-      console.error('Error fetching letters:', error);
-    }
-  };
-
   const filterMedicines = () => {
     let filtered = medicines;
 
@@ -110,6 +110,7 @@ export const API_CONFIG = {
   
   MEDICINES: {
     ALL: `${getUserAppointmentApiUrl()}/api/medicines`,
+    CATALOG: `${getUserAppointmentApiUrl()}/api/medicines/catalog`,
     SEARCH: (name: string) => `${getUserAppointmentApiUrl()}/api/medicines/search?name=${encodeURIComponent(name)}`,
     BY_LETTER: (letter: string) => `${getUserAppointmentApiUrl()}/api/medicines/filter/letter/${letter}`,
     BY_CATEGORY: (category: string) => `${getUserAppointmentApiUrl()}/api/medicines/filter/category/${encodeURIComponent(category)}`,
@@ -4,17 +4,23 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pulseiq.service.MailDispatcher;
+
 @RestController
 @RequestMapping("/")
 @CrossOrigin(origins = "*")
 public class HealthController {
 
+    @Autowired
+    private MailDispatcher mailDispatcher;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> response = new HashMap<>();
@@ -22,6 +28,7 @@ public class HealthController {
         response.put("service", "payment-service");
         response.put("timestamp", LocalDateTime.now());
         response.put("message", "Payment service is running");
+        response.put("mail", mailDispatcher.getStats());
         return ResponseEntity.ok(response);
     }
     
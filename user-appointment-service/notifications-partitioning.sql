@@ -0,0 +1,66 @@
+-- One-off migration: convert pulseiq.notifications into monthly range partitions on created_at
+-- Run once during a maintenance window. The table is locked ACCESS EXCLUSIVE while its rows are
+-- copied, so notification reads and writes wait until the script commits.
+-- Once the table is partitioned the application creates upcoming months and archives expired
+-- ones (app.notifications.partitions-ahead / retention-months); it never converts the table.
+
+BEGIN;
+
+LOCK TABLE pulseiq.notifications IN ACCESS EXCLUSIVE MODE;
+
+-- A serial column owns its sequence; keep the sequence when the old table is dropped (ownership
+-- moves to the new table below)
+ALTER SEQUENCE IF EXISTS pulseiq.notifications_notification_id_seq OWNED BY NONE;
+
+ALTER TABLE pulseiq.notifications RENAME TO notifications_unpartitioned;
+
+-- The partition key has to be part of the primary key
+CREATE TABLE pulseiq.notifications (
+    LIKE pulseiq.notifications_unpartitioned INCLUDING CONSTRAINTS INCLUDING DEFAULTS,
+    PRIMARY KEY (notification_id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE pulseiq.notifications_default PARTITION OF pulseiq.notifications DEFAULT;
+
+-- One partition per month from the oldest row to three months ahead
+DO $$
+DECLARE
+    month DATE := date_trunc('month', COALESCE(
+        (SELECT MIN(created_at) FROM pulseiq.notifications_unpartitioned), now()))::date;
+    next_id BIGINT;
+BEGIN
+    WHILE month <= (date_trunc('month', now()) + INTERVAL '3 months')::date LOOP
+        EXECUTE format('CREATE TABLE pulseiq.%I PARTITION OF pulseiq.notifications FOR VALUES FROM (%L) TO (%L)',
+                       'notifications_' || to_char(month, 'YYYY_MM'), month, (month + INTERVAL '1 month')::date);
+        month := (month + INTERVAL '1 month')::date;
+    END LOOP;
+
+    -- Past every issued ID, whether or not the IDs came from this sequence
+    SELECT GREATEST(
+               COALESCE((SELECT MAX(notification_id) FROM pulseiq.notifications_unpartitioned), 0),
+               COALESCE((SELECT last_value FROM pg_sequences
+                         WHERE schemaname = 'pulseiq' AND sequencename = 'notifications_notification_id_seq'), 0)) + 50
+      INTO next_id;
+    CREATE SEQUENCE IF NOT EXISTS pulseiq.notifications_notification_id_seq;
+    PERFORM setval('pulseiq.notifications_notification_id_seq', next_id);
+END $$;
+
+-- Notification IDs are allocated 50 at a time (allocationSize = 50); owning the sequence again
+-- lets PooledSequenceConfig find it through pg_get_serial_sequence
+ALTER SEQUENCE pulseiq.notifications_notification_id_seq
+    INCREMENT BY 50
+    OWNED BY pulseiq.notifications.notification_id;
+
+INSERT INTO pulseiq.notifications SELECT * FROM pulseiq.notifications_unpartitioned;
+
+DROP TABLE pulseiq.notifications_unpartitioned;
+
+CREATE INDEX IF NOT EXISTS idx_notifications_recipient_read_created
+    ON pulseiq.notifications (recipient_id, is_read, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_notifications_recipient_created
+    ON pulseiq.notifications (recipient_id, created_at DESC);
+
+COMMIT;
+
+-- Check the result:
+-- SELECT inhrelid::regclass FROM pg_inherits WHERE inhparent = 'pulseiq.notifications'::regclass;
@@ -0,0 +1,37 @@
+-- Backfill stored per-patient prescription sequence numbers
+-- New prescriptions get patient_sequence from pulseiq.patient_prescription_counter at creation time.
+-- This numbers existing prescriptions in creation order and seeds the counters to match.
+
+BEGIN;
+
+ALTER TABLE pulseiq.prescription ADD COLUMN IF NOT EXISTS patient_sequence INTEGER;
+
+CREATE TABLE IF NOT EXISTS pulseiq.patient_prescription_counter (
+    patient_id VARCHAR(255) PRIMARY KEY,
+    last_sequence INTEGER NOT NULL
+);
+
+-- Number legacy rows 1..n per patient, oldest first
+UPDATE pulseiq.prescription p
+SET patient_sequence = numbered.seq
+FROM (
+    SELECT prescription_id,
+           ROW_NUMBER() OVER (PARTITION BY patient_id ORDER BY created_at, prescription_id) AS seq
+    FROM pulseiq.prescription
+) numbered
+WHERE p.prescription_id = numbered.prescription_id
+  AND p.patient_sequence IS NULL;
+
+INSERT INTO pulseiq.patient_prescription_counter (patient_id, last_sequence)
+SELECT patient_id, MAX(patient_sequence)
+FROM pulseiq.prescription
+GROUP BY patient_id
+ON CONFLICT (patient_id) DO UPDATE SET last_sequence = GREATEST(
+    pulseiq.patient_prescription_counter.last_sequence, EXCLUDED.last_sequence);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_prescription_patient_sequence
+    ON pulseiq.prescription (patient_id, patient_sequence);
+CREATE INDEX IF NOT EXISTS idx_prescription_patient_created
+    ON pulseiq.prescription (patient_id, created_at);
+
+COMMIT;
@@ -0,0 +1,277 @@
+package com.pulseiq.config;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the monthly range partitions of {@code pulseiq.notifications} on {@code created_at}.
+ * <ul>
+ *   <li>Partitions are created {@code app.notifications.partitions-ahead} months in advance; a
+ *       default partition catches anything outside them.</li>
+ *   <li>Months older than {@code app.notifications.retention-months} whose notifications have all
+ *       been read are detached, written to {@code app.notifications.archive-dir} as gzipped CSV and
+ *       dropped. A month that still has unread notifications is kept.</li>
+ * </ul>
+ * Runs after startup and then every few hours. The table is converted to partitions once, by
+ * {@code notifications-partitioning.sql} during a maintenance window; until then nothing is done
+ * here. Each DDL statement gives up after a few seconds rather than queue requests behind its lock.
+ */
+@Slf4j
+@Component
+@Profile("!(test | integration | ci)") // H2 has no declarative partitioning
+public class NotificationPartitioning implements ApplicationRunner {
+
+    private static final String SCHEMA = "pulseiq";
+    private static final String TABLE = SCHEMA + ".notifications";
+    private static final Pattern PARTITION_NAME = Pattern.compile("notifications_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final long MAINTENANCE_INTERVAL_HOURS = 6;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String LOCK_TIMEOUT = "5s";
+
+    private final DataSource dataSource;
+    private final int partitionsAhead;
+    private final int retentionMonths;
+    private final Path archiveDir;
+    private final ScheduledExecutorService scheduler;
+
+    public NotificationPartitioning(DataSource dataSource,
+                                    @Value("${app.notifications.partitions-ahead:3}") int partitionsAhead,
+                                    @Value("${app.notifications.retention-months:12}") int retentionMonths,
+                                    @Value("${app.notifications.archive-dir:data/notification-archive}") String archiveDir) {
+        this.dataSource = dataSource;
+        this.partitionsAhead = partitionsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = Paths.get(archiveDir);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-partitioning");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, MAINTENANCE_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    void maintain() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+            connection.setAutoCommit(false);
+            String kind = tableKind(connection);
+            if (kind == null) {
+                // Hibernate has not created the table yet
+                return;
+            }
+            if (!"p".equals(kind)) {
+                log.warn("{} is not partitioned yet; run notifications-partitioning.sql to convert it", TABLE);
+                return;
+            }
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= partitionsAhead; i++) {
+                if (!partitionExists(connection, current.plusMonths(i))) {
+                    createPartition(connection, current.plusMonths(i));
+                }
+            }
+            archiveExpired(connection, current.minusMonths(retentionMonths));
+        } catch (Exception e) {
+            log.warn("Notification partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private String tableKind(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = ? AND c.relname = 'notifications'")) {
+            statement.setString(1, SCHEMA);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private boolean partitionExists(Connection connection, YearMonth month) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            statement.setString(1, SCHEMA + "." + partitionName(month));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                boolean exists = resultSet.getBoolean(1);
+                connection.commit();
+                return exists;
+            }
+        }
+    }
+
+    private void createPartition(Connection connection, YearMonth month) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+            statement.execute(createPartitionSql(month));
+            connection.commit();
+        } catch (SQLException e) {
+            // Rows for that month already sit in the default partition, or the table was busy
+            connection.rollback();
+            log.warn("Could not create notification partition for {}: {}", month, e.getMessage());
+        }
+    }
+
+    private static String createPartitionSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + SCHEMA + "." + partitionName(month) + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "notifications_" + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Detach months before {@code cutoff} with no unread rows, then archive and drop every
+     * detached month, including ones a previous run detached but could not archive.
+     */
+    private void archiveExpired(Connection connection, YearMonth cutoff) throws SQLException, IOException {
+        List<String> attached = new ArrayList<>();
+        List<String> detached = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT c.relname, c.relispartition FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = ? AND c.relkind = 'r' AND c.relname ~ '^notifications_[0-9]{4}_[0-9]{2}$'")) {
+            statement.setString(1, SCHEMA);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    (resultSet.getBoolean(2) ? attached : detached).add(resultSet.getString(1));
+                }
+            }
+        }
+        connection.commit();
+
+        for (String partition : attached) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()
+                    || !YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(cutoff)) {
+                continue;
+            }
+            try (Statement statement = connection.createStatement()) {
+                if (queryLong(statement, "SELECT COUNT(*) FROM (SELECT 1 FROM " + SCHEMA + "." + partition +
+                        " WHERE is_read = false LIMIT 1) AS unread") > 0) {
+                    connection.commit();
+                    log.info("Keeping notification partition {}: it still has unread notifications", partition);
+                    continue;
+                }
+                statement.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+                statement.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + SCHEMA + "." + partition);
+                connection.commit();
+                detached.add(partition);
+            } catch (SQLException e) {
+                connection.rollback();
+                log.warn("Could not detach notification partition {}: {}", partition, e.getMessage());
+            }
+        }
+
+        for (String partition : detached) {
+            Path archive = export(connection, partition);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE " + SCHEMA + "." + partition);
+                connection.commit();
+            }
+            log.info("Archived notification partition {} to {}", partition, archive);
+        }
+    }
+
+    /**
+     * Write a detached partition to a gzipped CSV file with a header row. The file only gets its
+     * final name once it is complete.
+     */
+    private Path export(Connection connection, String partition) throws SQLException, IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveDir.resolve(partition + ".csv.gz");
+        Path temp = archiveDir.resolve(partition + ".csv.gz.tmp");
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT * FROM " + SCHEMA + "." + partition + " ORDER BY notification_id")) {
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery();
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(
+                         new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columns = metaData.getColumnCount();
+                for (int i = 1; i <= columns; i++) {
+                    writer.write((i > 1 ? "," : "") + metaData.getColumnName(i));
+                }
+                writer.write('\n');
+                while (resultSet.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        if (i > 1) {
+                            writer.write(',');
+                        }
+                        Object value = resultSet.getObject(i);
+                        if (value instanceof Timestamp timestamp) {
+                            value = timestamp.toLocalDateTime();
+                        }
+                        writer.write(csv(value));
+                    }
+                    writer.write('\n');
+                }
+            }
+        }
+        connection.commit();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.pulseiq.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.pulseiq.otp.LocalOtpStore;
+import com.pulseiq.otp.OtpHasher;
+import com.pulseiq.otp.OtpStore;
+import com.pulseiq.otp.PostgresOtpStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the OTP store: {@code local} (default) for a single instance, {@code postgres} when
+ * several replicas serve the same patients and doctors.
+ */
+@Slf4j
+@Configuration
+public class OtpStoreConfig {
+
+    @Bean
+    public OtpHasher otpHasher(@Value("${app.otp-store.hmac-secret:${jwt.secret}}") String secret) {
+        return new OtpHasher(secret);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public OtpStore otpStore(DataSource dataSource,
+                             OtpHasher otpHasher,
+                             @Value("${app.otp-store.type:local}") String type) {
+        if ("postgres".equalsIgnoreCase(type)) {
+            PostgresOtpStore store = new PostgresOtpStore(dataSource, otpHasher);
+            store.start();
+            log.info("Storing OTPs in PostgreSQL");
+            return store;
+        }
+        log.info("Storing OTPs in memory on this node");
+        return new LocalOtpStore(otpHasher);
+    }
+}
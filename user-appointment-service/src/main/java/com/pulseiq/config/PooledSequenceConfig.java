@@ -0,0 +1,88 @@
+package com.pulseiq.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entities that moved from IDENTITY to pooled sequences (so their inserts can be JDBC-batched)
+ * reuse the sequences PostgreSQL created for the old BIGSERIAL/identity columns. Those sequences
+ * increment by 1, while Hibernate's pooled optimizer expects them to advance by the allocation
+ * size. This runs before the EntityManagerFactory is built and widens the increment.
+ */
+@Slf4j
+@Configuration
+@Profile("!(test | integration | ci)") // H2 schemas are created by Hibernate with the right increment
+public class PooledSequenceConfig {
+
+    // Must match allocationSize on the @SequenceGenerator of each entity below
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String[][] POOLED_ID_COLUMNS = {
+        {"pulseiq.prescription", "prescription_id"},
+        {"pulseiq.prescription_medicine", "prescription_medicine_id"},
+        {"pulseiq.test_results", "test_id"},
+        {"pulseiq.notifications", "notification_id"}
+    };
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor pooledSequenceMigrationDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor("pooledSequenceMigration");
+    }
+
+    @Bean
+    public PooledSequenceMigration pooledSequenceMigration(DataSource dataSource) {
+        return new PooledSequenceMigration(dataSource);
+    }
+
+    @RequiredArgsConstructor
+    static class PooledSequenceMigration implements InitializingBean {
+
+        private final DataSource dataSource;
+
+        @Override
+        public void afterPropertiesSet() {
+            for (String[] column : POOLED_ID_COLUMNS) {
+                try (Connection connection = dataSource.getConnection()) {
+                    String sequenceName = findOwnedSequence(connection, column[0], column[1]);
+                    if (sequenceName == null) {
+                        // Fresh schema: Hibernate creates the sequence itself with the right increment
+                        continue;
+                    }
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("ALTER SEQUENCE " + sequenceName + " INCREMENT BY " + ALLOCATION_SIZE);
+                    }
+                    if (!connection.getAutoCommit()) {
+                        connection.commit();
+                    }
+                    log.info("Sequence {} now increments by {}", sequenceName, ALLOCATION_SIZE);
+                } catch (Exception e) {
+                    // Don't fail startup (the table may not exist yet), but make it visible
+                    log.warn("Could not align sequence for {}.{}: {}", column[0], column[1], e.getMessage());
+                }
+            }
+        }
+
+        private String findOwnedSequence(Connection connection, String table, String column) throws Exception {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_get_serial_sequence(?, ?)")) {
+                statement.setString(1, table);
+                statement.setString(2, column);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getString(1) : null;
+                }
+            }
+        }
+    }
+}
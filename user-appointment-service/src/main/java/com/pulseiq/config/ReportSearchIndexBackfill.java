@@ -0,0 +1,61 @@
+package com.pulseiq.config;
+
+import java.time.LocalDateTime;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.pulseiq.repository.TestResultRepository;
+import com.pulseiq.service.ReportIndexingService;
+import com.pulseiq.service.ReportSearchIndex;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes reports that are missing from the full-text index or whose lab values have not been
+ * parsed yet, e.g. uploaded before either existed or skipped while the indexing queue was full.
+ * Runs in the background after startup.
+ */
+@Slf4j
+@Component
+@Profile("!(test | integration | ci)")
+@RequiredArgsConstructor
+public class ReportSearchIndexBackfill implements ApplicationRunner {
+
+    private final TestResultRepository testResultRepository;
+    private final ReportSearchIndex reportSearchIndex;
+    private final ReportIndexingService reportIndexingService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread worker = new Thread(this::backfill, "report-index-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void backfill() {
+        int indexed = 0;
+        try {
+            for (Object[] entry : testResultRepository.findIndexEntries()) {
+                Long testId = (Long) entry[0];
+                String patientId = (String) entry[1];
+                String blobRef = (String) entry[2];
+                LocalDateTime measuredAt = (LocalDateTime) entry[3];
+                boolean labValuesParsed = entry[4] != null;
+                // Indexing a report again is harmless, so one pass covers whichever part is missing
+                if (!labValuesParsed || !reportSearchIndex.contains(patientId, testId)) {
+                    reportIndexingService.indexReport(patientId, testId, blobRef, measuredAt);
+                    indexed++;
+                }
+            }
+            if (indexed > 0) {
+                log.info("Indexed {} test result reports", indexed);
+            }
+        } catch (Exception e) {
+            log.warn("Report index backfill stopped after {} reports: {}", indexed, e.getMessage());
+        }
+    }
+}
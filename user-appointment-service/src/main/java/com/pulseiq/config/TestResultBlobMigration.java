@@ -0,0 +1,160 @@
+package com.pulseiq.config;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.pulseiq.storage.BlobStorageService;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves PDFs still stored inline in {@code test_results.pdf_data} into the blob store. The legacy
+ * column is made nullable during context startup, before the web server takes requests; the
+ * rows are then moved in the background, one per transaction. Rows that are not migrated yet
+ * keep being served from the old column, and a row that fails is retried on the next start.
+ */
+@Slf4j
+@Component
+@Profile("!(test | integration | ci)")
+@RequiredArgsConstructor
+public class TestResultBlobMigration implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 20;
+
+    private final DataSource dataSource;
+    private final BlobStorageService blobStorageService;
+
+    private boolean legacyColumn;
+
+    @PostConstruct
+    void prepareLegacyColumn() {
+        legacyColumn = legacyColumnExists();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!legacyColumn) {
+            return;
+        }
+        Thread worker = new Thread(this::migrate, "test-result-blob-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void migrate() {
+        int migrated = 0;
+        int failed = 0;
+        try {
+            long lastId = 0;
+            List<Long> batch;
+            while (!(batch = nextBatch(lastId)).isEmpty()) {
+                for (Long testId : batch) {
+                    lastId = testId;
+                    try {
+                        if (migrateRow(testId)) {
+                            migrated++;
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        log.warn("Could not move PDF of test result {} to the blob store: {}", testId, e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Test result PDF migration stopped after {} rows: {}", migrated, e.getMessage());
+        }
+        if (migrated > 0 || failed > 0) {
+            log.info("Moved {} test result PDFs to the blob store, {} failed", migrated, failed);
+        }
+    }
+
+    private boolean legacyColumnExists() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT 1 FROM information_schema.columns WHERE table_schema = 'pulseiq' " +
+                    "AND table_name = 'test_results' AND column_name = 'pdf_data'")) {
+                if (!resultSet.next()) {
+                    return false;
+                }
+            }
+            // The entity no longer writes this column
+            statement.execute("ALTER TABLE pulseiq.test_results ALTER COLUMN pdf_data DROP NOT NULL");
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Could not prepare test_results for blob migration: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Keyset by ID, so rows that failed are not picked up again in this run
+    private List<Long> nextBatch(long afterId) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT test_id FROM pulseiq.test_results WHERE blob_ref IS NULL AND pdf_data IS NOT NULL " +
+                     "AND test_id > ? ORDER BY test_id LIMIT " + BATCH_SIZE)) {
+            statement.setLong(1, afterId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Move one row's PDF. Returns false when the row no longer needs it, e.g. because another
+     * replica migrated it between the batch query and the lock.
+     */
+    private boolean migrateRow(Long testId) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            String blobRef;
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT pdf_data FROM pulseiq.test_results " +
+                    "WHERE test_id = ? AND blob_ref IS NULL AND pdf_data IS NOT NULL FOR UPDATE")) {
+                select.setLong(1, testId);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    if (!resultSet.next()) {
+                        connection.rollback();
+                        return false;
+                    }
+                    try (InputStream content = resultSet.getBinaryStream(1)) {
+                        blobRef = blobStorageService.put(content);
+                    }
+                }
+            }
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE pulseiq.test_results SET blob_ref = ?, pdf_data = NULL WHERE test_id = ?")) {
+                update.setString(1, blobRef);
+                update.setLong(2, testId);
+                update.executeUpdate();
+                connection.commit();
+            } catch (Exception e) {
+                connection.rollback();
+                blobStorageService.delete(blobRef);
+                throw e;
+            }
+            return true;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.pulseiq.controller;
 
 import com.pulseiq.dto.MedicineDto;
+import com.pulseiq.service.MedicineCatalogSnapshot;
 import com.pulseiq.service.MedicineService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +26,23 @@ public class MedicineController {
         return ResponseEntity.ok(medicines);
     }
     
+    /**
+     * Full catalog (medicines plus category and letter facet counts) as one pre-serialized
+     * JSON document. Clients revalidate with If-None-Match and get 304 while the catalog is unchanged.
+     */
+    @GetMapping("/catalog")
+    public ResponseEntity<byte[]> getCatalog(WebRequest webRequest) {
+        MedicineCatalogSnapshot snapshot = medicineService.getCatalogSnapshot();
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getEtag())
+                .body(snapshot.getJson());
+    }
+    
     @GetMapping("/{medicineId}")
     public ResponseEntity<MedicineDto> getMedicineById(@PathVariable Long medicineId) {
         Optional<MedicineDto> medicine = medicineService.getMedicineById(medicineId);
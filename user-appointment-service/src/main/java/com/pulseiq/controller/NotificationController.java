@@ -1,14 +1,18 @@
 package com.pulseiq.controller;
 
 import com.pulseiq.dto.NotificationDto;
+import com.pulseiq.dto.NotificationPageDto;
 import com.pulseiq.entity.Notification;
 import com.pulseiq.service.NotificationService;
+import com.pulseiq.service.NotificationStreamService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +26,7 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationStreamService notificationStreamService;
 
     /**
      * Get all notifications for the authenticated user
@@ -57,6 +62,38 @@ public class NotificationController {
         }
     }
 
+    /**
+     * One page of the authenticated user's inbox, newest first. Pass nextCursor back as cursor
+     * to get the next page.
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<NotificationPageDto> getInbox(@AuthenticationPrincipal UserDetails userDetails,
+                                                        @RequestParam(required = false) Boolean read,
+                                                        @RequestParam(required = false) Notification.NotificationType type,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer size) {
+        try {
+            String userId = userDetails.getUsername();
+            return ResponseEntity.ok(notificationService.getInbox(userId, read, type, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching notification inbox", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Server-sent events for the authenticated user: "notification" when one is created and
+     * "unread-count" whenever the count changes. Browsers can pass the JWT as ?token=
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(@AuthenticationPrincipal UserDetails userDetails) {
+        String userId = userDetails.getUsername();
+        log.info("Opening notification stream for user: {}", userId);
+        return notificationStreamService.subscribe(userId);
+    }
+
     /**
      * Get unread notification count for the authenticated user
      */
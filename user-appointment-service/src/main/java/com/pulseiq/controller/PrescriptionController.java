@@ -2,8 +2,13 @@ package com.pulseiq.controller;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -13,11 +18,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.pulseiq.dto.CreatePrescriptionDto;
 import com.pulseiq.dto.PrescriptionDto;
-import com.pulseiq.service.PrescriptionPdfService;
+import com.pulseiq.service.PrescriptionPdfRenderer;
 import com.pulseiq.service.PrescriptionService;
 
 import lombok.RequiredArgsConstructor;
@@ -29,7 +35,9 @@ import lombok.RequiredArgsConstructor;
 public class PrescriptionController {
     
     private final PrescriptionService prescriptionService;
-    private final PrescriptionPdfService pdfService;
+    private final PrescriptionPdfRenderer pdfRenderer;
+    
+    private static final int MAX_PAGE_SIZE = 100;
     
     @PostMapping
     public ResponseEntity<PrescriptionDto> createPrescription(
@@ -70,28 +78,36 @@ public class PrescriptionController {
     }
     
     @GetMapping("/patient/{patientId}")
-    public ResponseEntity<List<PrescriptionDto>> getPrescriptionsByPatient(@PathVariable String patientId) {
-        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByPatient(patientId);
+    public ResponseEntity<List<PrescriptionDto>> getPrescriptionsByPatient(@PathVariable String patientId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByPatient(patientId, toPageable(page, size));
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/doctor/{doctorId}")
-    public ResponseEntity<List<PrescriptionDto>> getPrescriptionsByDoctor(@PathVariable String doctorId) {
-        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByDoctor(doctorId);
+    public ResponseEntity<List<PrescriptionDto>> getPrescriptionsByDoctor(@PathVariable String doctorId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByDoctor(doctorId, toPageable(page, size));
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/my-prescriptions")
-    public ResponseEntity<List<PrescriptionDto>> getMyPrescriptions(Authentication authentication) {
+    public ResponseEntity<List<PrescriptionDto>> getMyPrescriptions(Authentication authentication,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         String userId = authentication.getName();
-        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByPatient(userId);
+        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByPatient(userId, toPageable(page, size));
         return ResponseEntity.ok(prescriptions);
     }
     
     @GetMapping("/my-created-prescriptions")
-    public ResponseEntity<List<PrescriptionDto>> getMyCreatedPrescriptions(Authentication authentication) {
+    public ResponseEntity<List<PrescriptionDto>> getMyCreatedPrescriptions(Authentication authentication,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         String doctorId = authentication.getName();
-        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByDoctor(doctorId);
+        List<PrescriptionDto> prescriptions = prescriptionService.getPrescriptionsByDoctor(doctorId, toPageable(page, size));
         return ResponseEntity.ok(prescriptions);
     }
     
@@ -103,28 +119,27 @@ public class PrescriptionController {
     }
     
     @GetMapping("/{prescriptionId}/pdf")
-    public ResponseEntity<byte[]> downloadPrescriptionPdf(@PathVariable Long prescriptionId) {
+    public CompletableFuture<ResponseEntity<byte[]>> downloadPrescriptionPdf(@PathVariable Long prescriptionId) {
         try {
             Optional<PrescriptionDto> prescriptionOpt = prescriptionService.getPrescriptionById(prescriptionId);
             if (prescriptionOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+                return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
             }
             
             PrescriptionDto prescription = prescriptionOpt.get();
-            int sequenceNumber = prescriptionService.getPrescriptionSequenceNumber(prescription.getPatientId(), prescriptionId);
-            
-            byte[] pdfBytes = pdfService.generatePrescriptionPdf(prescription, sequenceNumber);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "prescription_" + sequenceNumber + ".pdf");
-            headers.setContentLength(pdfBytes.length);
+            int sequenceNumber = prescriptionService.getPrescriptionSequenceNumber(prescription);
+            String fileName = "prescription_" + sequenceNumber + ".pdf";
             
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(pdfBytes);
+            // The request thread is released until the PDF is ready; the response is then written on a container thread
+            return pdfRenderer.renderPdf(prescription, sequenceNumber)
+                    .thenApply(pdfBytes -> pdfResponse(fileName, pdfBytes))
+                    .exceptionally(e -> e.getCause() instanceof RejectedExecutionException
+                            ? renderersBusy()
+                            : ResponseEntity.internalServerError().build());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(renderersBusy());
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            return CompletableFuture.completedFuture(ResponseEntity.internalServerError().build());
         }
     }
     
@@ -137,4 +152,31 @@ public class PrescriptionController {
             return ResponseEntity.notFound().build();
         }
     }
+    
+    private static ResponseEntity<byte[]> pdfResponse(String fileName, byte[] pdfBytes) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", fileName);
+        headers.setContentLength(pdfBytes.length);
+        
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(pdfBytes);
+    }
+    
+    private static <T> ResponseEntity<T> renderersBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build();
+    }
+    
+    // Listings stay unpaged unless the client asks for a page
+    private Pageable toPageable(Integer page, Integer size) {
+        if (page == null && size == null) {
+            return Pageable.unpaged();
+        }
+        int pageNumber = page != null ? Math.max(page, 0) : 0;
+        int pageSize = size != null ? Math.min(Math.max(size, 1), MAX_PAGE_SIZE) : 20;
+        return PageRequest.of(pageNumber, pageSize);
+    }
 }
@@ -0,0 +1,63 @@
+package com.pulseiq.controller;
+
+import com.pulseiq.service.PatientRecordsExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/records")
+@RequiredArgsConstructor
+@Slf4j
+public class RecordsExportController {
+
+    private final PatientRecordsExportService exportService;
+
+    /**
+     * Download all prescriptions and test reports of the authenticated patient as one ZIP
+     */
+    @GetMapping("/my-export")
+    public ResponseEntity<StreamingResponseBody> exportMyRecords(@AuthenticationPrincipal UserDetails userDetails) {
+        return exportZip(userDetails.getUsername());
+    }
+
+    /**
+     * Download all prescriptions and test reports of a patient as one ZIP (the patient or an admin)
+     */
+    @GetMapping("/patient/{patientId}/export")
+    public ResponseEntity<StreamingResponseBody> exportPatientRecords(@PathVariable String patientId,
+                                                                      @AuthenticationPrincipal UserDetails userDetails) {
+        boolean isAdmin = userDetails.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        if (!isAdmin && !patientId.equals(userDetails.getUsername())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return exportZip(patientId);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportZip(String patientId) {
+        log.info("Exporting records for patient: {}", patientId);
+        String fileName = "pulseiq_records_" + patientId + "_" + LocalDate.now() + ".zip";
+
+        // Written on an MVC async thread as documents become ready; no Content-Length up front
+        StreamingResponseBody body = outputStream -> exportService.exportPatientRecords(patientId, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
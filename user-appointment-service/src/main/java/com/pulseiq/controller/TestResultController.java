@@ -1,34 +1,48 @@
 package com.pulseiq.controller;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pulseiq.dto.LabTrendDto;
+import com.pulseiq.dto.LabValueDto;
+import com.pulseiq.dto.TestResultBatchItemDto;
+import com.pulseiq.dto.TestResultBatchResultDto;
 import com.pulseiq.dto.TestResultResponseDto;
+import com.pulseiq.dto.TestResultSearchPageDto;
 import com.pulseiq.dto.TestResultStatsDto;
 import com.pulseiq.dto.TestResultUploadDto;
 import com.pulseiq.entity.TestResult;
+import com.pulseiq.service.LabValueService;
 import com.pulseiq.service.NotificationService;
 import com.pulseiq.service.PatientOtpService;
+import com.pulseiq.service.TestResultBatchUploadService;
 import com.pulseiq.service.TestResultService;
+import com.pulseiq.storage.BlobDownload;
+import com.pulseiq.storage.BlobDownloadHandler;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -40,6 +54,12 @@ public class TestResultController {
     private final TestResultService testResultService;
     private final NotificationService notificationService;
     private final PatientOtpService patientOtpService;
+    private final BlobDownloadHandler blobDownloadHandler;
+    private final LabValueService labValueService;
+    private final TestResultBatchUploadService testResultBatchUploadService;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
     /**
      * Upload a new test result (Technician only)
@@ -53,7 +73,7 @@ public class TestResultController {
                         
             // Create notification ONLY for patient (not doctor)
             if (response.getPatientId() != null) {
-                notificationService.createNotification(
+                notificationService.queueNotification(
                     response.getPatientId(),
                     "PATIENT", 
                     "Test Result Available",
@@ -77,6 +97,34 @@ public class TestResultController {
         }
     }
 
+    /**
+     * Upload several test results at once (Technician only). The "metadata" part is a JSON array
+     * matched to the "files" parts by position; each file succeeds or fails on its own.
+     */
+    @PostMapping("/batch-upload")
+    public ResponseEntity<?> batchUploadTestResults(@RequestPart("metadata") List<TestResultBatchItemDto> metadata,
+                                                    @RequestPart("files") List<MultipartFile> files,
+                                                    @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            String technicianId = userDetails.getUsername();
+            List<TestResultBatchResultDto> results =
+                    testResultBatchUploadService.uploadTestResults(metadata, files, technicianId);
+            long succeeded = results.stream().filter(TestResultBatchResultDto::isSuccess).count();
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("message", succeeded + " of " + results.size() + " test results uploaded");
+            result.put("succeeded", succeeded);
+            result.put("failed", results.size() - succeeded);
+            result.put("results", results);
+
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * Get all test results for a patient
      */
@@ -114,6 +162,16 @@ public class TestResultController {
         return ResponseEntity.ok(testResults);
     }
 
+    /**
+     * Search the contents of my reports (for authenticated patient)
+     */
+    @GetMapping("/my-tests/search")
+    public ResponseEntity<List<TestResultResponseDto>> searchMyTestReports(@RequestParam("q") String query,
+                                                                          @AuthenticationPrincipal UserDetails userDetails) {
+        String patientId = userDetails.getUsername();
+        return ResponseEntity.ok(testResultService.searchReportContents(patientId, query));
+    }
+
     /**
      * Get test results uploaded by me (for authenticated technician)
      */
@@ -147,10 +205,12 @@ public class TestResultController {
      * Download PDF of a test result
      */
     @GetMapping("/{testId}/download")
-    public ResponseEntity<Resource> downloadTestResult(@PathVariable Long testId,
-                                                     @AuthenticationPrincipal UserDetails userDetails) {
+    public void downloadTestResult(@PathVariable Long testId,
+                                   @AuthenticationPrincipal UserDetails userDetails,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
         String userId = userDetails.getUsername();
-        return testResultService.downloadTestResultPdf(testId, userId);
+        blobDownloadHandler.serve(testResultService.getTestResultPdf(testId, userId), request, response);
     }
 
     /**
@@ -203,6 +263,64 @@ public class TestResultController {
         }
     }
 
+    /**
+     * Attach numeric lab values to a test result (technician who uploaded it)
+     */
+    @PostMapping("/{testId}/lab-values")
+    public ResponseEntity<?> attachLabValues(@PathVariable Long testId,
+                                             @RequestBody List<LabValueDto> labValues,
+                                             @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            String technicianId = userDetails.getUsername();
+            labValueService.attachValues(testId, technicianId, labValues);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Lab values saved successfully");
+            response.put("count", labValues.size());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Analytes with recorded values for a patient (the patient or a doctor with a completed appointment)
+     */
+    @GetMapping("/patient/{patientId}/trends")
+    public ResponseEntity<?> getLabAnalytes(@PathVariable String patientId,
+                                            @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            return ResponseEntity.ok(labValueService.getAnalytes(patientId, userDetails.getUsername()));
+        } catch (RuntimeException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Values of one analyte over time, downsampled to at most maxPoints
+     */
+    @GetMapping("/patient/{patientId}/trends/{analyte}")
+    public ResponseEntity<?> getLabTrend(@PathVariable String patientId,
+                                         @PathVariable String analyte,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+                                         @RequestParam(required = false) Integer maxPoints,
+                                         @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            LabTrendDto trend = labValueService.getTrend(patientId, analyte, startDate, endDate, maxPoints,
+                    userDetails.getUsername());
+            return ResponseEntity.ok(trend);
+        } catch (RuntimeException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * Delete test result (soft delete)
      */
@@ -263,19 +381,28 @@ public class TestResultController {
     }
 
     /**
-     * Search test results with multiple criteria
+     * Search test results with multiple criteria, newest first, one page at a time
      */
     @GetMapping("/search")
-    public ResponseEntity<List<TestResultResponseDto>> searchTestResults(
+    public ResponseEntity<TestResultSearchPageDto> searchTestResults(
             @RequestParam(required = false) String patientId,
             @RequestParam(required = false) String doctorId,
             @RequestParam(required = false) String technicianId,
             @RequestParam(required = false) String testType,
-            @RequestParam(required = false) TestResult.TestStatus status) {
+            @RequestParam(required = false) TestResult.TestStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         
-        List<TestResultResponseDto> testResults = testResultService.searchTestResults(
-                patientId, doctorId, technicianId, testType, status);
-        return ResponseEntity.ok(testResults);
+        int pageSize = size != null ? Math.min(Math.max(size, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        try {
+            TestResultSearchPageDto page = testResultService.searchTestResults(
+                    patientId, doctorId, technicianId, testType, status, startDate, endDate, cursor, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -350,6 +477,36 @@ public class TestResultController {
         }
     }
 
+    /**
+     * Search the contents of a patient's reports with OTP verification for doctors
+     */
+    @PostMapping("/doctor/search-reports")
+    public ResponseEntity<?> searchPatientReportsWithOtp(@RequestParam String patientId,
+                                                        @RequestParam String otp,
+                                                        @RequestParam("q") String query,
+                                                        @AuthenticationPrincipal UserDetails userDetails) {
+        try {
+            String doctorId = userDetails.getUsername();
+            
+            if (!patientOtpService.verifyOtp(patientId, doctorId, otp)) {
+                Map<String, String> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Invalid or expired OTP");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            List<TestResultResponseDto> testResults = testResultService.searchReportContentsForDoctor(patientId, doctorId, query);
+            Map<String, Object> response = new HashMap<>();
+            response.put("patientId", patientId);
+            response.put("query", query);
+            response.put("testResults", testResults);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * Download test result PDF with OTP verification for doctors
      */
@@ -357,13 +514,17 @@ public class TestResultController {
     public ResponseEntity<?> downloadTestResultWithOtp(@RequestParam Long testId,
                                                       @RequestParam String patientId,
                                                       @RequestParam String otp,
-                                                      @AuthenticationPrincipal UserDetails userDetails) {
+                                                      @AuthenticationPrincipal UserDetails userDetails,
+                                                      HttpServletRequest request,
+                                                      HttpServletResponse response) {
         try {
             String doctorId = userDetails.getUsername();
             
             if (patientOtpService.verifyOtpForDownload(patientId, doctorId, otp)) {
                 // OTP verified, now validate that test result belongs to the specified patient
-                return testResultService.downloadTestResultForPatient(testId, doctorId, patientId);
+                BlobDownload download = testResultService.getTestResultPdfForPatient(testId, doctorId, patientId);
+                blobDownloadHandler.serve(download, request, response);
+                return null; // body already written
             } else {
                 Map<String, String> errorResponse = new HashMap<>();
                 errorResponse.put("error", "Invalid or expired OTP");
@@ -0,0 +1,27 @@
+package com.pulseiq.converter;
+
+import com.pulseiq.entity.EmailOutbox.EmailType;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores the enum name like @Enumerated(STRING), but without the CHECK constraint Hibernate generates
+// for enum columns, which ddl-auto=update never widens when a type is added
+@Converter(autoApply = true)
+public class EmailTypeConverter implements AttributeConverter<EmailType, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EmailType emailType) {
+        if (emailType == null) {
+            return null;
+        }
+        return emailType.name();
+    }
+
+    @Override
+    public EmailType convertToEntityAttribute(String dbData) {
+        if (dbData == null || dbData.trim().isEmpty()) {
+            return null;
+        }
+        return EmailType.valueOf(dbData);
+    }
+}
@@ -0,0 +1,36 @@
+package com.pulseiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LabTrendDto {
+    private String patientId;
+    private String analyte;
+    private String unit;
+    // Values in the requested range before downsampling
+    private int totalPoints;
+    private List<Point> points;
+
+    /**
+     * One value, or the aggregate of a time bucket when the series was downsampled
+     * (then {@code testId} is null and {@code count} is above 1).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDateTime measuredAt;
+        private double value;
+        private double min;
+        private double max;
+        private int count;
+        private Long testId;
+    }
+}
@@ -0,0 +1,14 @@
+package com.pulseiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LabValueDto {
+    private String analyte;
+    private Double value;
+    private String unit;
+}
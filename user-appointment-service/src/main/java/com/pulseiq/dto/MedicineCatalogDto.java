@@ -0,0 +1,17 @@
+package com.pulseiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MedicineCatalogDto {
+    private long version;
+    private List<MedicineDto> medicines;
+    private Map<String, Long> categoryCounts; // category -> number of active medicines
+    private Map<String, Long> letterCounts;   // upper-case first letter -> number of active medicines
+}
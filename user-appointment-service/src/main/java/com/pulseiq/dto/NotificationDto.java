@@ -1,5 +1,6 @@
 package com.pulseiq.dto;
 
+import com.pulseiq.entity.Notification;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -21,4 +22,20 @@ public class NotificationDto {
     private LocalDateTime createdAt;
     private LocalDateTime readAt;
     private String createdBy;
+
+    public static NotificationDto from(Notification notification) {
+        return new NotificationDto(
+                notification.getNotificationId(),
+                notification.getRecipientId(),
+                notification.getRecipientType(),
+                notification.getTitle(),
+                notification.getMessage(),
+                notification.getType().name(),
+                notification.getIsRead(),
+                notification.getRelatedEntityId(),
+                notification.getRelatedEntityType(),
+                notification.getCreatedAt(),
+                notification.getReadAt(),
+                notification.getCreatedBy());
+    }
 }
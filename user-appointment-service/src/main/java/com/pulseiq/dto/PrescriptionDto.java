@@ -15,6 +15,7 @@ public class PrescriptionDto {
     private String doctorId;
     private String patientId;
     private Long appointmentId;
+    private Integer sequenceNumber;
     private String doctorNotes;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,20 @@
+package com.pulseiq.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata of one file in a batch upload; items are matched to files by position.
+ */
+@Data
+public class TestResultBatchItemDto {
+    private String testName;
+    private String testType;
+    private String description;
+    private String patientId;
+    // Doctor ID is optional - can be empty for custom doctor names
+    private String doctorId;
+    private LocalDateTime testDate;
+    private String notes;
+}
@@ -0,0 +1,24 @@
+package com.pulseiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestResultBatchResultDto {
+    private int index;
+    private String fileName;
+    private boolean success;
+    private Long testId;
+    private String error;
+
+    public static TestResultBatchResultDto succeeded(int index, String fileName, Long testId) {
+        return new TestResultBatchResultDto(index, fileName, true, testId, null);
+    }
+
+    public static TestResultBatchResultDto failed(int index, String fileName, String error) {
+        return new TestResultBatchResultDto(index, fileName, false, null, error);
+    }
+}
@@ -0,0 +1,16 @@
+package com.pulseiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestResultSearchPageDto {
+    private List<TestResultResponseDto> results;
+    // Pass back as "cursor" to get the next page; null on the last page
+    private String nextCursor;
+}
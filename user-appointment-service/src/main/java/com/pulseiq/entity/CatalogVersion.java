@@ -0,0 +1,28 @@
+package com.pulseiq.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Version of a cached catalog, bumped (upsert) in every transaction that changes it. Every
+ * replica compares it with the version of its own snapshot, so a write on one node is seen by all.
+ */
+@Entity
+@Table(name = "catalog_version", schema = "pulseiq")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersion {
+    
+    @Id
+    @Column(name = "catalog_name", length = 50)
+    private String catalogName;
+    
+    @Column(name = "version", nullable = false)
+    private Long version;
+}
@@ -0,0 +1,88 @@
+package com.pulseiq.entity;
+
+import java.time.LocalDateTime;
+
+import com.pulseiq.converter.EmailTypeConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An email to send, written in the same transaction as the change that caused it and sent by
+ * {@code EmailOutboxService} after the commit. The payload holds the template parameters as JSON
+ * and is cleared once the email is sent or given up, so OTPs do not stay in the table. Emails with
+ * an expiry, such as OTPs, are given up once it passes instead of being retried.
+ */
+@Entity
+@Table(name = "email_outbox", schema = "pulseiq",
+       indexes = @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id")
+    private Long outboxId;
+
+    @Convert(converter = EmailTypeConverter.class)
+    @Column(name = "email_type", nullable = false, length = 40)
+    private EmailType emailType;
+
+    @Column(name = "recipient_email", nullable = false)
+    private String recipientEmail;
+
+    @Column(name = "recipient_name")
+    private String recipientName;
+
+    @Column(name = "payload", columnDefinition = "text")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // While a dispatcher holds the row this is pushed forward, so a crashed send is retried later
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Null for emails that stay worth sending however late
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public enum EmailType {
+        OTP,
+        OTP_TEST_TYPE,
+        NOTIFICATION_DIGEST
+    }
+
+    public enum Status {
+        PENDING,
+        SENT,
+        FAILED
+    }
+}
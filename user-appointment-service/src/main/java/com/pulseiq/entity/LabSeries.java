@@ -0,0 +1,55 @@
+package com.pulseiq.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * All values of one analyte for one patient, stored as a single packed row: time, test id and
+ * value columns encoded back to back (see {@code LabSeriesPoints}). A trend query reads one row.
+ */
+@Entity
+@Table(name = "lab_series", schema = "pulseiq",
+       uniqueConstraints = @UniqueConstraint(name = "uk_lab_series_patient_analyte", columnNames = {"patient_id", "analyte"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LabSeries {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "series_id")
+    private Long seriesId;
+
+    @Column(name = "patient_id", nullable = false)
+    private String patientId;
+
+    // Normalized analyte code, e.g. "hba1c"
+    @Column(name = "analyte", nullable = false, length = 40)
+    private String analyte;
+
+    @Column(name = "unit", length = 20)
+    private String unit;
+
+    @Column(name = "point_count", nullable = false)
+    private int pointCount;
+
+    @Column(name = "points", nullable = false)
+    @JdbcTypeCode(SqlTypes.VARBINARY)
+    private byte[] points;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
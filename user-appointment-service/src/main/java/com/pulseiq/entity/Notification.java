@@ -7,14 +7,19 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications", schema = "pulseiq")
+@Table(name = "notifications", schema = "pulseiq",
+       indexes = {
+           @Index(name = "idx_notifications_recipient_read_created", columnList = "recipient_id, is_read, created_at DESC"),
+           @Index(name = "idx_notifications_recipient_created", columnList = "recipient_id, created_at DESC")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Notification {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_seq")
+    @SequenceGenerator(name = "notification_seq", sequenceName = "notifications_notification_id_seq", schema = "pulseiq", allocationSize = 50)
     @Column(name = "notification_id")
     private Long notificationId;
 
@@ -48,7 +53,8 @@ public class Notification {
     @Column(name = "related_entity_type", length = 50)
     private String relatedEntityType; // APPOINTMENT, TEST_RESULT, etc.
 
-    @Column(name = "created_at", nullable = false)
+    // Partition key of the table, so it never changes after insert
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
     @Column(name = "read_at")
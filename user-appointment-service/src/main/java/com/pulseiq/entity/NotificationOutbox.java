@@ -0,0 +1,40 @@
+package com.pulseiq.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Notifications queued by one transaction, written in that transaction as a single row and
+ * turned into {@link Notification} rows by {@code NotificationWriteBehind}, which then deletes it.
+ * A row that is still here after a crash or a failed write is picked up again.
+ */
+@Entity
+@Table(name = "notification_outbox", schema = "pulseiq",
+       indexes = @Index(name = "idx_notification_outbox_created", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id")
+    private Long outboxId;
+
+    // The queued notifications as a JSON array
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
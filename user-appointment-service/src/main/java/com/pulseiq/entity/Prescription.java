@@ -10,23 +10,33 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "prescription", schema = "pulseiq")
+@Table(name = "prescription", schema = "pulseiq",
+       indexes = {
+           @Index(name = "idx_prescription_patient_created", columnList = "patient_id, created_at"),
+           @Index(name = "idx_prescription_doctor_created", columnList = "doctor_id, created_at")
+       },
+       uniqueConstraints = @UniqueConstraint(name = "uk_prescription_patient_sequence", columnNames = {"patient_id", "patient_sequence"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Prescription {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (not IDENTITY) so inserts can be JDBC-batched; reuses the BIGSERIAL sequence
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_seq")
+    @SequenceGenerator(name = "prescription_seq", sequenceName = "prescription_prescription_id_seq", schema = "pulseiq", allocationSize = 50)
     @Column(name = "prescription_id")
     private Long prescriptionId;
     
@@ -36,6 +46,10 @@ public class Prescription {
     @Column(name = "patient_id", nullable = false)
     private String patientId;
     
+    // 1-based position of this prescription in the patient's history, assigned once at creation
+    @Column(name = "patient_sequence")
+    private Integer patientSequence;
+    
     @Column(name = "appointment_id", nullable = false)
     private Long appointmentId;
     
@@ -0,0 +1,28 @@
+package com.pulseiq.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last prescription sequence number handed out per patient. Incremented atomically
+ * (upsert + row lock) when a prescription is created.
+ */
+@Entity
+@Table(name = "patient_prescription_counter", schema = "pulseiq")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrescriptionCounter {
+    
+    @Id
+    @Column(name = "patient_id")
+    private String patientId;
+    
+    @Column(name = "last_sequence", nullable = false)
+    private Integer lastSequence;
+}
@@ -10,6 +10,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -23,7 +24,9 @@ import lombok.NoArgsConstructor;
 public class PrescriptionMedicine {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (not IDENTITY) so inserts can be JDBC-batched; reuses the BIGSERIAL sequence
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_medicine_seq")
+    @SequenceGenerator(name = "prescription_medicine_seq", sequenceName = "prescription_medicine_prescription_medicine_id_seq", schema = "pulseiq", allocationSize = 50)
     @Column(name = "prescription_medicine_id")
     private Long prescriptionMedicineId;
     
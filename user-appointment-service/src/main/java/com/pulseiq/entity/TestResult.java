@@ -3,10 +3,8 @@ package com.pulseiq.entity;
 import java.sql.Types;
 import java.time.LocalDateTime;
 
-import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.NotFound;
 import org.hibernate.annotations.NotFoundAction;
-import org.hibernate.type.SqlTypes;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -16,25 +14,33 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "test_results", schema = "pulseiq")
+@Table(name = "test_results", schema = "pulseiq",
+       indexes = {
+           @Index(name = "idx_test_results_patient_uploaded", columnList = "patient_id, uploaded_at"),
+           @Index(name = "idx_test_results_technician_uploaded", columnList = "technician_id, uploaded_at"),
+           @Index(name = "idx_test_results_doctor_uploaded", columnList = "doctor_id, uploaded_at"),
+           @Index(name = "idx_test_results_patient_type_uploaded", columnList = "patient_id, test_type, uploaded_at"),
+           @Index(name = "idx_test_results_content_hash", columnList = "content_hash")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class TestResult {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_result_seq")
+    @SequenceGenerator(name = "test_result_seq", sequenceName = "test_results_test_id_seq", schema = "pulseiq", allocationSize = 50)
     @Column(name = "test_id")
     private Long testId;
 
@@ -49,14 +55,17 @@ public class TestResult {
     @Column(name = "description", length = 500)
     private String description;
 
-    // PDF file stored as binary data
-    @Lob
-    // @Column(name = "pdf_data", nullable = false, columnDefinition = "LONGVARBINARY")
-    // @JdbcTypeCode(Types.BINARY)
-    @Column(name = "pdf_data", nullable = false)
-    @JdbcTypeCode(SqlTypes.LONGVARBINARY)
-    @NotNull(message = "PDF data is required")
-    private byte[] pdfData;
+    // PDF content lives in the blob store; the row only keeps its reference
+    @Column(name = "blob_ref", length = 255)
+    private String blobRef;
+
+    // SHA-256 of the PDF; rows with the same hash share one stored blob
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Set once lab values have been parsed from the report; only written by that update
+    @Column(name = "lab_values_parsed_at", insertable = false, updatable = false)
+    private LocalDateTime labValuesParsedAt;
 
     @Column(name = "pdf_filename", nullable = false, length = 255)
     @NotBlank(message = "PDF filename is required")
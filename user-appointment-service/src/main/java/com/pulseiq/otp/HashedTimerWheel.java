@@ -0,0 +1,73 @@
+package com.pulseiq.otp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: a deadline goes into the slot of its tick modulo the wheel size, and each
+ * advance only visits the slots of the ticks that passed. Scheduling and expiring are O(1) per
+ * key regardless of how many keys are pending. Not thread-safe; callers synchronize.
+ */
+class HashedTimerWheel {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Timeout>[] slots;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    HashedTimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.slots = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    void schedule(String key, long deadlineMillis) {
+        // Round up so a key never fires before its deadline; past deadlines fire on the next advance
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick);
+        slots[(int) (deadlineTick & mask)].add(new Timeout(key, deadlineTick));
+    }
+
+    /**
+     * Fire every timeout whose tick has passed by {@code nowMillis}.
+     */
+    void advance(long nowMillis, Consumer<String> expired) {
+        long nowTick = nowMillis / tickMillis;
+        if (nowTick < currentTick) {
+            return;
+        }
+        // After a long pause every slot is visited once rather than once per missed tick
+        long lastTick = Math.min(nowTick, currentTick + mask);
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            Iterator<Timeout> timeouts = slots[(int) (tick & mask)].iterator();
+            while (timeouts.hasNext()) {
+                Timeout timeout = timeouts.next();
+                if (timeout.deadlineTick() <= nowTick) {
+                    timeouts.remove();
+                    expired.accept(timeout.key());
+                }
+            }
+        }
+        currentTick = nowTick + 1;
+    }
+
+    int pending() {
+        int pending = 0;
+        for (List<Timeout> slot : slots) {
+            pending += slot.size();
+        }
+        return pending;
+    }
+
+    private record Timeout(String key, long deadlineTick) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.pulseiq.otp;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTPs kept in memory on this node, for single-instance deployments. Entries are dropped when
+ * they expire by a {@link HashedTimerWheel} ticking once a second.
+ */
+@Slf4j
+public class LocalOtpStore implements OtpStore {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 1024;
+
+    private final OtpHasher hasher;
+    private final Map<String, OtpEntry> entries = new ConcurrentHashMap<>();
+    private final HashedTimerWheel wheel = new HashedTimerWheel(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "otp-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LocalOtpStore(OtpHasher hasher) {
+        this.hasher = hasher;
+        ticker.scheduleAtFixedRate(() -> expire(Instant.now()), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @Override
+    public void put(String key, OtpEntry entry) {
+        entries.put(key, entry);
+        synchronized (wheel) {
+            wheel.schedule(key, entry.expiresAt().toEpochMilli());
+        }
+    }
+
+    @Override
+    public boolean matches(String key, String otp, String doctorId, String testType) {
+        OtpEntry entry = entries.get(key);
+        return entry != null && entry.matches(hasher, otp, doctorId, testType, Instant.now());
+    }
+
+    @Override
+    public boolean consume(String key, String otp, String doctorId, String testType) {
+        OtpEntry entry = entries.get(key);
+        return entry != null && entry.matches(hasher, otp, doctorId, testType, Instant.now())
+                && entries.remove(key, entry);
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return entries.remove(key) != null;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void expire(Instant now) {
+        synchronized (wheel) {
+            // A key issued again since has a later deadline and its own timeout, so keep it
+            wheel.advance(now.toEpochMilli(),
+                    key -> entries.computeIfPresent(key, (k, entry) -> entry.isExpired(now) ? null : entry));
+        }
+        log.debug("Expired OTPs dropped, {} remaining", entries.size());
+    }
+}
@@ -0,0 +1,27 @@
+package com.pulseiq.otp;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * An issued OTP. Only an {@link OtpHasher} hash of the code is kept, so reading a store does not
+ * reveal codes without the server secret.
+ */
+public record OtpEntry(String codeHash, String patientId, String doctorId, String testType, Instant expiresAt) {
+
+    public static OtpEntry issue(OtpHasher hasher, String otp, String patientId, String doctorId, String testType,
+                                 Duration validity) {
+        return new OtpEntry(hasher.hash(otp), patientId, doctorId, testType, Instant.now().plus(validity));
+    }
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+
+    public boolean matches(OtpHasher hasher, String otp, String requestingDoctorId, String requestedTestType, Instant now) {
+        return !isExpired(now)
+                && doctorId.equals(requestingDoctorId)
+                && testType.equals(requestedTestType)
+                && hasher.matches(codeHash, otp);
+    }
+}
@@ -0,0 +1,41 @@
+package com.pulseiq.otp;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Keyed hash (HMAC-SHA256) of OTP codes. A plain hash of a 6-digit code is reversed by trying
+ * all of them, so stored hashes are only safe while the server secret is.
+ */
+public class OtpHasher {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    public OtpHasher(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("OTP hashing needs a secret");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String hash(String otp) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(otp.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    boolean matches(String codeHash, String otp) {
+        return otp != null && MessageDigest.isEqual(codeHash.getBytes(StandardCharsets.US_ASCII),
+                hash(otp).getBytes(StandardCharsets.US_ASCII));
+    }
+}
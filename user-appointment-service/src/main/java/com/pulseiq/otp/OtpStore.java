@@ -0,0 +1,31 @@
+package com.pulseiq.otp;
+
+/**
+ * Storage for issued OTPs, keyed by patient, doctor and (optionally) test type. The
+ * implementation is chosen with {@code app.otp-store.type}: {@code local} keeps OTPs on this node,
+ * {@code postgres} shares them between replicas.
+ */
+public interface OtpStore {
+
+    /**
+     * Store an entry, replacing any earlier one under the key
+     */
+    void put(String key, OtpEntry entry);
+
+    /**
+     * Whether the live entry under the key accepts the code for the doctor and test type
+     */
+    boolean matches(String key, String otp, String doctorId, String testType);
+
+    /**
+     * Remove the entry under the key if it accepts the code for the doctor and test type, as one
+     * atomic step. Returns false if it does not match or another request consumed it first.
+     */
+    boolean consume(String key, String otp, String doctorId, String testType);
+
+    /**
+     * Remove the entry under the key. Returns false if there was none, e.g. because another
+     * request consumed it first.
+     */
+    boolean remove(String key);
+}
@@ -0,0 +1,157 @@
+package com.pulseiq.otp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTPs shared by all replicas in an UNLOGGED PostgreSQL table: OTPs are short-lived, so they skip
+ * the WAL and are simply lost on a crash. A verification is one primary-key lookup, and consuming
+ * a code is a single conditional delete, so a code can only be used once across the cluster and
+ * never after another node replaced it. Writes join the caller's transaction, so an OTP issued in
+ * a transaction that rolls back is never valid.
+ */
+@Slf4j
+public class PostgresOtpStore implements OtpStore {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final DataSource dataSource;
+    private final OtpHasher hasher;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "otp-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PostgresOtpStore(DataSource dataSource, OtpHasher hasher) {
+        this.dataSource = dataSource;
+        this.hasher = hasher;
+    }
+
+    public void start() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE UNLOGGED TABLE IF NOT EXISTS pulseiq.patient_otp ("
+                    + "otp_key VARCHAR(150) PRIMARY KEY, "
+                    + "code_hash VARCHAR(64) NOT NULL, "
+                    + "patient_id VARCHAR(50) NOT NULL, "
+                    + "doctor_id VARCHAR(50) NOT NULL, "
+                    + "test_type VARCHAR(100) NOT NULL, "
+                    + "expires_at TIMESTAMPTZ NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_patient_otp_expires_at ON pulseiq.patient_otp (expires_at)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the OTP table", e);
+        }
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    @Override
+    public void put(String key, OtpEntry entry) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO pulseiq.patient_otp (otp_key, code_hash, patient_id, doctor_id, test_type, expires_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (otp_key) DO UPDATE SET "
+                        + "code_hash = EXCLUDED.code_hash, patient_id = EXCLUDED.patient_id, "
+                        + "doctor_id = EXCLUDED.doctor_id, test_type = EXCLUDED.test_type, "
+                        + "expires_at = EXCLUDED.expires_at")) {
+            statement.setString(1, key);
+            statement.setString(2, entry.codeHash());
+            statement.setString(3, entry.patientId());
+            statement.setString(4, entry.doctorId());
+            statement.setString(5, entry.testType());
+            statement.setTimestamp(6, Timestamp.from(entry.expiresAt()));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to store OTP", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @Override
+    public boolean matches(String key, String otp, String doctorId, String testType) {
+        Instant now = Instant.now();
+        OtpEntry entry = load(key, now);
+        return entry != null && entry.matches(hasher, otp, doctorId, testType, now);
+    }
+
+    @Override
+    public boolean consume(String key, String otp, String doctorId, String testType) {
+        if (otp == null) {
+            return false;
+        }
+        return update("DELETE FROM pulseiq.patient_otp WHERE otp_key = ? AND code_hash = ? "
+                        + "AND doctor_id = ? AND test_type = ? AND expires_at > ?",
+                "Failed to consume OTP", key, hasher.hash(otp), doctorId, testType, Timestamp.from(Instant.now())) > 0;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return update("DELETE FROM pulseiq.patient_otp WHERE otp_key = ?", "Failed to remove OTP", key) > 0;
+    }
+
+    private int update(String sql, String failure, Object... parameters) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(failure, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private OtpEntry load(String key, Instant now) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT code_hash, patient_id, doctor_id, test_type, expires_at FROM pulseiq.patient_otp "
+                        + "WHERE otp_key = ? AND expires_at > ?")) {
+            statement.setString(1, key);
+            statement.setTimestamp(2, Timestamp.from(now));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new OtpEntry(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4), resultSet.getTimestamp(5).toInstant());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read OTP", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void sweep() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM pulseiq.patient_otp WHERE expires_at <= ?")) {
+            statement.setTimestamp(1, Timestamp.from(Instant.now()));
+            int deleted = statement.executeUpdate();
+            if (deleted > 0) {
+                log.debug("Removed {} expired OTPs", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Could not remove expired OTPs: {}", e.getMessage());
+        }
+    }
+}
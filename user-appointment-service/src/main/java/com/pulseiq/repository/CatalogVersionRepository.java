@@ -0,0 +1,26 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, String> {
+    
+    @Query("SELECT v.version FROM CatalogVersion v WHERE v.catalogName = :catalogName")
+    Optional<Long> findVersion(@Param("catalogName") String catalogName);
+    
+    /**
+     * Atomically bump a catalog's version; the first call for a catalog creates it at 1. The row
+     * stays locked until the calling transaction ends, so versions commit in order.
+     */
+    @Query(value = "INSERT INTO pulseiq.catalog_version (catalog_name, version) VALUES (:catalogName, 1) " +
+                   "ON CONFLICT (catalog_name) DO UPDATE " +
+                   "SET version = pulseiq.catalog_version.version + 1 " +
+                   "RETURNING version", nativeQuery = true)
+    Long nextVersion(@Param("catalogName") String catalogName);
+}
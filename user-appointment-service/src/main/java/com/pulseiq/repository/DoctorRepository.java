@@ -1,10 +1,12 @@
 package com.pulseiq.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pulseiq.entity.Doctor;
@@ -19,6 +21,14 @@ public interface DoctorRepository extends JpaRepository<Doctor, String> {
                    "ORDER BY d.doctor_id", nativeQuery = true)
     List<Object[]> findAllDoctorsNative();
     
+    // Name/license projection for list views (skips the profile picture LOB)
+    @Query("SELECT d.doctorId, d.firstName, d.lastName, d.licenseNumber FROM Doctor d WHERE d.doctorId IN :doctorIds")
+    List<Object[]> findNamesByDoctorIdIn(@Param("doctorIds") Collection<String> doctorIds);
+
+    // Which of the given ids exist, in one query (batch upload validation)
+    @Query("SELECT d.doctorId FROM Doctor d WHERE d.doctorId IN :doctorIds")
+    List<String> findExistingDoctorIds(@Param("doctorIds") Collection<String> doctorIds);
+    
     // Appointment-related methods
     List<Doctor> findByIsAvailableTrue();
     
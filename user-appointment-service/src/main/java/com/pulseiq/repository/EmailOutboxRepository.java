@@ -0,0 +1,50 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.EmailOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Rows locked by another dispatcher are skipped (lock timeout -2 = SKIP LOCKED), so replicas never claim the same email
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status = com.pulseiq.entity.EmailOutbox.Status.PENDING "
+            + "AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<EmailOutbox> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.pulseiq.entity.EmailOutbox.Status.SENT, e.sentAt = :sentAt, "
+            + "e.payload = null, e.lastError = null WHERE e.outboxId = :outboxId")
+    void markSent(@Param("outboxId") Long outboxId, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError "
+            + "WHERE e.outboxId = :outboxId")
+    void markForRetry(@Param("outboxId") Long outboxId, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError);
+
+    // A row that will not be sent keeps no payload
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.pulseiq.entity.EmailOutbox.Status.FAILED, "
+            + "e.payload = null, e.lastError = :lastError WHERE e.outboxId = :outboxId")
+    void markFailed(@Param("outboxId") Long outboxId, @Param("lastError") String lastError);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.pulseiq.entity.EmailOutbox.Status.FAILED, "
+            + "e.payload = null, e.lastError = 'Expired before it was sent' "
+            + "WHERE e.status = com.pulseiq.entity.EmailOutbox.Status.PENDING AND e.expiresAt <= :now")
+    int expireOverdue(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,36 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.LabSeries;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LabSeriesRepository extends JpaRepository<LabSeries, Long> {
+
+    Optional<LabSeries> findByPatientIdAndAnalyte(String patientId, String analyte);
+
+    // Creates an empty series if there is none, so that findForUpdate has a row to lock even for a
+    // patient's first value of an analyte; concurrent first inserts wait on the unique key instead of failing
+    @Modifying
+    @Query(value = "INSERT INTO pulseiq.lab_series (patient_id, analyte, point_count, points, updated_at) " +
+                   "VALUES (:patientId, :analyte, 0, CAST('' AS bytea), CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (patient_id, analyte) DO NOTHING", nativeQuery = true)
+    void insertIfAbsent(@Param("patientId") String patientId, @Param("analyte") String analyte);
+
+    // Appends read-modify-write the packed row, so they hold a row lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ls FROM LabSeries ls WHERE ls.patientId = :patientId AND ls.analyte = :analyte")
+    Optional<LabSeries> findForUpdate(@Param("patientId") String patientId, @Param("analyte") String analyte);
+
+    // Analytes with values for a patient: (analyte, unit, pointCount)
+    @Query("SELECT ls.analyte, ls.unit, ls.pointCount FROM LabSeries ls WHERE ls.patientId = :patientId ORDER BY ls.analyte")
+    List<Object[]> findSummariesByPatientId(@Param("patientId") String patientId);
+}
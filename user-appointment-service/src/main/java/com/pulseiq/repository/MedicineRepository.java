@@ -10,7 +10,7 @@ import java.util.List;
 @Repository
 public interface MedicineRepository extends JpaRepository<Medicine, Long> {
     
-    List<Medicine> findByIsActiveTrue();
+    List<Medicine> findByIsActiveTrueOrderByMedicineNameAsc();
     
     @Query("SELECT m FROM Medicine m WHERE m.isActive = true AND LOWER(m.medicineName) LIKE LOWER(CONCAT(:name, '%'))")
     List<Medicine> findByMedicineNameStartingWithIgnoreCase(@Param("name") String name);
@@ -20,10 +20,4 @@ public interface MedicineRepository extends JpaRepository<Medicine, Long> {
     
     @Query("SELECT m FROM Medicine m WHERE m.isActive = true AND m.category = :category")
     List<Medicine> findByCategory(@Param("category") String category);
-    
-    @Query("SELECT DISTINCT m.category FROM Medicine m WHERE m.isActive = true ORDER BY m.category")
-    List<String> findDistinctCategories();
-    
-    @Query("SELECT DISTINCT UPPER(SUBSTRING(m.medicineName, 1, 1)) FROM Medicine m WHERE m.isActive = true ORDER BY UPPER(SUBSTRING(m.medicineName, 1, 1))")
-    List<String> findDistinctFirstLetters();
 }
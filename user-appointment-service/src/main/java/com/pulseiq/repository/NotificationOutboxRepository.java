@@ -0,0 +1,32 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.NotificationOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // Rows another writer holds are skipped (lock timeout -2 = SKIP LOCKED), so no batch is written twice
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.outboxId IN :outboxIds")
+    List<NotificationOutbox> findByIdsForUpdate(@Param("outboxIds") Collection<Long> outboxIds);
+
+    // Rows no node is about to write: left by a crash, a failed write or a full queue
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.createdAt <= :before ORDER BY o.outboxId")
+    List<NotificationOutbox> findStrandedForUpdate(@Param("before") LocalDateTime before, Pageable pageable);
+}
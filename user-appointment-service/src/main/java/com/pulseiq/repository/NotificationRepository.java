@@ -2,21 +2,31 @@ package com.pulseiq.repository;
 
 import com.pulseiq.entity.Notification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
+public interface NotificationRepository extends JpaRepository<Notification, Long>, JpaSpecificationExecutor<Notification> {
 
     /**
-     * Find all notifications for a specific recipient, ordered by creation date (newest first)
+     * Find a recipient's notifications created since the given time, newest first; the lower bound
+     * keeps older monthly partitions out of the scan
      */
-    List<Notification> findByRecipientIdOrderByCreatedAtDesc(String recipientId);
+    List<Notification> findByRecipientIdAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(String recipientId, LocalDateTime since);
+
+    /**
+     * Find a recipient's unread notifications created before the given time, newest first; months
+     * holding unread notifications are never archived
+     */
+    List<Notification> findByRecipientIdAndIsReadFalseAndCreatedAtBeforeOrderByCreatedAtDesc(String recipientId, LocalDateTime before);
 
     /**
      * Find unread notifications for a specific recipient
@@ -24,10 +34,18 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findByRecipientIdAndIsReadFalseOrderByCreatedAtDesc(String recipientId);
 
     /**
-     * Count unread notifications for a specific recipient
+     * Count unread notifications for a specific recipient. Not bounded by date: a month with unread
+     * notifications is never archived, so they can sit in any partition
      */
     long countByRecipientIdAndIsReadFalse(String recipientId);
 
+    /**
+     * Unread counts for several recipients as [recipientId, count]; recipients with none are omitted
+     */
+    @Query("SELECT n.recipientId, COUNT(n) FROM Notification n " +
+           "WHERE n.recipientId IN :recipientIds AND n.isRead = false GROUP BY n.recipientId")
+    List<Object[]> countUnreadByRecipientIdIn(@Param("recipientIds") Collection<String> recipientIds);
+
     /**
      * Find notifications by recipient and type
      */
@@ -44,7 +62,7 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findByRelatedEntityIdAndRelatedEntityType(String relatedEntityId, String relatedEntityType);
 
     /**
-     * Mark all notifications as read for a specific recipient
+     * Mark all notifications as read for a specific recipient (unbounded for the same reason as the count)
      */
     @Modifying
     @Transactional
@@ -52,10 +70,18 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     int markAllAsReadByRecipientId(@Param("recipientId") String recipientId);
 
     /**
-     * Mark specific notification as read
+     * Mark specific notification as read; returns 0 if it was already read. Its creation time
+     * confines the update to the partition holding it
      */
     @Modifying
     @Transactional
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = CURRENT_TIMESTAMP WHERE n.notificationId = :notificationId")
-    int markAsReadById(@Param("notificationId") Long notificationId);
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = CURRENT_TIMESTAMP " +
+           "WHERE n.notificationId = :notificationId AND n.createdAt = :createdAt AND n.isRead = false")
+    int markAsReadById(@Param("notificationId") Long notificationId, @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Signal a PostgreSQL channel; listeners receive it once the transaction it runs in commits
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_notify(:channel, :payload)) AS sent", nativeQuery = true)
+    int notifyChannel(@Param("channel") String channel, @Param("payload") String payload);
 }
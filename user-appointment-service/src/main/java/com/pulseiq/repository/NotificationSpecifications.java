@@ -0,0 +1,40 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.Notification;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Predicates for the notification inbox. Filters are only added when set, so an unread-only
+ * page is served by the {@code (recipient_id, is_read, created_at)} index.
+ */
+public final class NotificationSpecifications {
+
+    private NotificationSpecifications() {
+    }
+
+    public static Specification<Notification> hasRecipientId(String recipientId) {
+        return (root, query, cb) -> cb.equal(root.get("recipientId"), recipientId);
+    }
+
+    public static Specification<Notification> isRead(boolean read) {
+        return (root, query, cb) -> cb.equal(root.get("isRead"), read);
+    }
+
+    public static Specification<Notification> hasType(Notification.NotificationType type) {
+        return (root, query, cb) -> cb.equal(root.get("type"), type);
+    }
+
+    /**
+     * Rows after the given position in {@code createdAt DESC, notificationId DESC} order. The
+     * separate upper bound on {@code createdAt} lets PostgreSQL skip newer monthly partitions.
+     */
+    public static Specification<Notification> after(LocalDateTime createdAt, Long notificationId) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("createdAt"), createdAt),
+                cb.or(
+                        cb.lessThan(root.get("createdAt"), createdAt),
+                        cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("notificationId"), notificationId))));
+    }
+}
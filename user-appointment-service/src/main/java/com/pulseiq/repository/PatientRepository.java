@@ -1,10 +1,12 @@
 package com.pulseiq.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pulseiq.entity.Patient;
@@ -19,4 +21,12 @@ public interface PatientRepository extends JpaRepository<Patient, String> {
                    "LEFT JOIN \"pulseiq\".users u ON p.patient_id = u.userid " +
                    "ORDER BY p.patient_id", nativeQuery = true)
     List<Object[]> findAllPatientsNative();
+    
+    // Name projection for list views
+    @Query("SELECT p.patientId, p.firstName, p.lastName FROM Patient p WHERE p.patientId IN :patientIds")
+    List<Object[]> findNamesByPatientIdIn(@Param("patientIds") Collection<String> patientIds);
+
+    // Which of the given ids exist, in one query (batch upload validation)
+    @Query("SELECT p.patientId FROM Patient p WHERE p.patientId IN :patientIds")
+    List<String> findExistingPatientIds(@Param("patientIds") Collection<String> patientIds);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.PrescriptionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PrescriptionCounterRepository extends JpaRepository<PrescriptionCounter, String> {
+    
+    /**
+     * Atomically reserve the next sequence number for a patient. The first call for a patient
+     * seeds the counter from the prescriptions they already have, so legacy rows keep their numbers.
+     */
+    @Query(value = "INSERT INTO pulseiq.patient_prescription_counter (patient_id, last_sequence) " +
+                   "VALUES (:patientId, (SELECT COUNT(*) FROM pulseiq.prescription p WHERE p.patient_id = :patientId) + 1) " +
+                   "ON CONFLICT (patient_id) DO UPDATE " +
+                   "SET last_sequence = pulseiq.patient_prescription_counter.last_sequence + 1 " +
+                   "RETURNING last_sequence", nativeQuery = true)
+    Integer nextSequence(@Param("patientId") String patientId);
+}
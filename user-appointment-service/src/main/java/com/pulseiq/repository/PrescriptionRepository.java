@@ -1,10 +1,14 @@
 package com.pulseiq.repository;
 
 import com.pulseiq.entity.Prescription;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +19,35 @@ public interface PrescriptionRepository extends JpaRepository<Prescription, Long
     
     List<Prescription> findByDoctorIdAndIsActiveTrue(String doctorId);
     
+    // Listing reads page over IDs in SQL, then load the page with its lines and medicines in one query
+    @Query("SELECT p.prescriptionId FROM Prescription p WHERE p.patientId = :patientId AND p.isActive = true " +
+           "ORDER BY p.createdAt DESC, p.prescriptionId DESC")
+    List<Long> findActiveIdsByPatientId(@Param("patientId") String patientId, Pageable pageable);
+    
+    @Query("SELECT p.prescriptionId FROM Prescription p WHERE p.doctorId = :doctorId AND p.isActive = true " +
+           "ORDER BY p.createdAt DESC, p.prescriptionId DESC")
+    List<Long> findActiveIdsByDoctorId(@Param("doctorId") String doctorId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"prescriptionMedicines", "prescriptionMedicines.medicine"})
+    @Query("SELECT DISTINCT p FROM Prescription p WHERE p.prescriptionId IN :prescriptionIds")
+    List<Prescription> findWithMedicinesByIdIn(@Param("prescriptionIds") Collection<Long> prescriptionIds);
+    
+    @EntityGraph(attributePaths = {"prescriptionMedicines", "prescriptionMedicines.medicine"})
+    @Query("SELECT p FROM Prescription p WHERE p.prescriptionId = :prescriptionId")
+    Optional<Prescription> findWithMedicinesById(@Param("prescriptionId") Long prescriptionId);
+    
     Optional<Prescription> findByAppointmentIdAndIsActiveTrue(Long appointmentId);
     
     @Query("SELECT p FROM Prescription p WHERE p.doctorId = :doctorId AND p.patientId = :patientId AND p.isActive = true ORDER BY p.createdAt DESC")
     List<Prescription> findByDoctorIdAndPatientIdAndIsActiveTrue(@Param("doctorId") String doctorId, @Param("patientId") String patientId);
     
+    // Position of a prescription in the patient's history; served by idx_prescription_patient_created
+    @Query("SELECT COUNT(p) FROM Prescription p WHERE p.patientId = :patientId AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.prescriptionId <= :prescriptionId))")
+    long countPatientPrescriptionsUpTo(@Param("patientId") String patientId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("prescriptionId") Long prescriptionId);
+    
     @Query("SELECT p FROM Prescription p WHERE p.isActive = true ORDER BY p.createdAt DESC")
     List<Prescription> findAllActiveOrderByCreatedAtDesc();
 }
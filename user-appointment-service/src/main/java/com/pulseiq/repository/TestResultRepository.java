@@ -2,6 +2,8 @@ package com.pulseiq.repository;
 
 import com.pulseiq.entity.TestResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TestResultRepository extends JpaRepository<TestResult, Long> {
+public interface TestResultRepository extends JpaRepository<TestResult, Long>, JpaSpecificationExecutor<TestResult> {
     
     // Find all test results for a specific patient
     List<TestResult> findByPatientIdOrderByUploadedAtDesc(String patientId);
@@ -44,24 +46,55 @@ public interface TestResultRepository extends JpaRepository<TestResult, Long> {
     // Count tests uploaded by a technician
     long countByTechnicianId(String technicianId);
     
-    // Find test results by multiple criteria
-    @Query("SELECT tr FROM TestResult tr WHERE " +
-           "(:patientId IS NULL OR tr.patientId = :patientId) AND " +
-           "(:doctorId IS NULL OR tr.doctorId = :doctorId) AND " +
-           "(:technicianId IS NULL OR tr.technicianId = :technicianId) AND " +
-           "(:testType IS NULL OR tr.testType = :testType) AND " +
-           "(:status IS NULL OR tr.status = :status) " +
-           "ORDER BY tr.uploadedAt DESC")
-    List<TestResult> findTestResultsByCriteria(@Param("patientId") String patientId,
-                                             @Param("doctorId") String doctorId,
-                                             @Param("technicianId") String technicianId,
-                                             @Param("testType") String testType,
-                                             @Param("status") TestResult.TestStatus status);
-
     // Get distinct test types for a specific patient
     @Query("SELECT DISTINCT tr.testType FROM TestResult tr WHERE tr.patientId = :patientId ORDER BY tr.testType")
     List<String> findDistinctTestTypesByPatientId(@Param("patientId") String patientId);
 
     // Find test results by patient and test type ordered by test date
     List<TestResult> findByPatientIdAndTestTypeOrderByTestDateDesc(String patientId, String testType);
+
+    // Per-test-type counts for a patient's stats: (testType, total, completed, reviewed, cancelled, sinceMonthStart, sinceYearStart)
+    @Query("SELECT tr.testType, COUNT(tr), " +
+           "SUM(CASE WHEN tr.status = com.pulseiq.entity.TestResult.TestStatus.COMPLETED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.status = com.pulseiq.entity.TestResult.TestStatus.REVIEWED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.status = com.pulseiq.entity.TestResult.TestStatus.CANCELLED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.uploadedAt > :startOfMonth THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.uploadedAt > :startOfYear THEN 1 ELSE 0 END) " +
+           "FROM TestResult tr WHERE tr.patientId = :patientId GROUP BY tr.testType")
+    List<Object[]> countStatsByPatientId(@Param("patientId") String patientId,
+                                         @Param("startOfMonth") LocalDateTime startOfMonth,
+                                         @Param("startOfYear") LocalDateTime startOfYear);
+
+    // Same as countStatsByPatientId, for the uploads of a technician
+    @Query("SELECT tr.testType, COUNT(tr), " +
+           "SUM(CASE WHEN tr.status = com.pulseiq.entity.TestResult.TestStatus.COMPLETED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.status = com.pulseiq.entity.TestResult.TestStatus.REVIEWED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.status = com.pulseiq.entity.TestResult.TestStatus.CANCELLED THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.uploadedAt > :startOfMonth THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN tr.uploadedAt > :startOfYear THEN 1 ELSE 0 END) " +
+           "FROM TestResult tr WHERE tr.technicianId = :technicianId GROUP BY tr.testType")
+    List<Object[]> countStatsByTechnicianId(@Param("technicianId") String technicianId,
+                                            @Param("startOfMonth") LocalDateTime startOfMonth,
+                                            @Param("startOfYear") LocalDateTime startOfYear);
+
+    // Export listing without any document content: (testId, pdfFilename, blobRef); cancelled results are left out
+    @Query("SELECT tr.testId, tr.pdfFilename, tr.blobRef FROM TestResult tr WHERE tr.patientId = :patientId " +
+           "AND tr.status <> com.pulseiq.entity.TestResult.TestStatus.CANCELLED ORDER BY tr.uploadedAt DESC")
+    List<Object[]> findExportEntriesByPatientId(@Param("patientId") String patientId);
+
+    // An earlier upload with identical content, whose blob can be reused
+    Optional<TestResult> findFirstByContentHashAndBlobRefIsNotNull(String contentHash);
+
+    // Every report for the index backfill: (testId, patientId, blobRef, measuredAt, labValuesParsedAt)
+    @Query("SELECT tr.testId, tr.patientId, tr.blobRef, COALESCE(tr.testDate, tr.uploadedAt), tr.labValuesParsedAt " +
+           "FROM TestResult tr ORDER BY tr.testId")
+    List<Object[]> findIndexEntries();
+
+    @Modifying
+    @Query("UPDATE TestResult tr SET tr.labValuesParsedAt = :parsedAt WHERE tr.testId = :testId")
+    void markLabValuesParsed(@Param("testId") Long testId, @Param("parsedAt") LocalDateTime parsedAt);
+
+    // PDF bytes of a row that has not been moved to the blob store yet
+    @Query(value = "SELECT pdf_data FROM pulseiq.test_results WHERE test_id = :testId", nativeQuery = true)
+    byte[] findLegacyPdfData(@Param("testId") Long testId);
 }
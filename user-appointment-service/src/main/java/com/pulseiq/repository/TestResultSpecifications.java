@@ -0,0 +1,53 @@
+package com.pulseiq.repository;
+
+import com.pulseiq.entity.TestResult;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Predicates for test-result search. Each one is only added when its filter is set, so the
+ * generated SQL has exactly the conditions of the request and can use the matching index.
+ */
+public final class TestResultSpecifications {
+
+    private TestResultSpecifications() {
+    }
+
+    public static Specification<TestResult> hasPatientId(String patientId) {
+        return (root, query, cb) -> cb.equal(root.get("patientId"), patientId);
+    }
+
+    public static Specification<TestResult> hasDoctorId(String doctorId) {
+        return (root, query, cb) -> cb.equal(root.get("doctorId"), doctorId);
+    }
+
+    public static Specification<TestResult> hasTechnicianId(String technicianId) {
+        return (root, query, cb) -> cb.equal(root.get("technicianId"), technicianId);
+    }
+
+    public static Specification<TestResult> hasTestType(String testType) {
+        return (root, query, cb) -> cb.equal(root.get("testType"), testType);
+    }
+
+    public static Specification<TestResult> hasStatus(TestResult.TestStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<TestResult> uploadedFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("uploadedAt"), from);
+    }
+
+    public static Specification<TestResult> uploadedBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.get("uploadedAt"), to);
+    }
+
+    /**
+     * Rows after the given position in {@code uploadedAt DESC, testId DESC} order.
+     */
+    public static Specification<TestResult> after(LocalDateTime uploadedAt, Long testId) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("uploadedAt"), uploadedAt),
+                cb.and(cb.equal(root.get("uploadedAt"), uploadedAt), cb.lessThan(root.get("testId"), testId)));
+    }
+}
@@ -0,0 +1,219 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.entity.EmailOutbox;
+import com.pulseiq.repository.EmailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transactional outbox for emails. {@link #enqueue} only inserts a row in the caller's
+ * transaction; once it commits, a background dispatcher claims due rows, sends them on a small
+ * sender pool and records the outcome. Failed sends are retried with exponential backoff; OTP
+ * emails are dropped once the OTP has expired, as is any email that runs out of attempts. Rows
+ * are claimed with SKIP LOCKED, so several replicas can dispatch from the same table.
+ */
+@Slf4j
+@Service
+public class EmailOutboxService {
+
+    private static final int BATCH_SIZE = 20;
+    private static final Duration CLAIM_LEASE = Duration.ofMinutes(5);
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository,
+                              EmailService emailService,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.email-outbox.poll-interval-ms:5000}") long pollIntervalMillis,
+                              @Value("${app.email-outbox.max-concurrent-sends:2}") int maxConcurrentSends,
+                              @Value("${app.email-outbox.max-attempts:5}") int maxAttempts) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        // One dispatcher thread, so drains never overlap on this node
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(maxConcurrentSends, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::drain, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Queue an email in the current transaction; it is sent once the transaction commits.
+     */
+    public void enqueue(EmailOutbox.EmailType emailType, String recipientEmail, String recipientName,
+                        Map<String, String> params) {
+        EmailOutbox email = new EmailOutbox();
+        email.setEmailType(emailType);
+        email.setRecipientEmail(recipientEmail);
+        email.setRecipientName(recipientName);
+        try {
+            email.setPayload(objectMapper.writeValueAsString(params));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to queue email: " + e.getMessage());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        email.setStatus(EmailOutbox.Status.PENDING);
+        email.setNextAttemptAt(now);
+        email.setExpiresAt(expiresAt(emailType, now));
+        email.setCreatedAt(now);
+        emailOutboxRepository.save(email);
+        log.info("Queued {} email to {}", emailType, recipientEmail);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            dispatcher.execute(() -> {
+                wakeUpPending.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+     * Send everything that is due, one claimed batch at a time.
+     */
+    void drain() {
+        try {
+            List<EmailOutbox> claimed;
+            do {
+                claimed = claimDue();
+                List<Future<?>> sends = new ArrayList<>(claimed.size());
+                for (EmailOutbox email : claimed) {
+                    sends.add(senders.submit(() -> send(email)));
+                }
+                for (Future<?> send : sends) {
+                    send.get();
+                }
+            } while (claimed.size() == BATCH_SIZE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.warn("Email outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    private List<EmailOutbox> claimDue() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int expired = emailOutboxRepository.expireOverdue(now);
+            if (expired > 0) {
+                log.info("Dropped {} queued emails that expired before they could be sent", expired);
+            }
+            List<EmailOutbox> due = emailOutboxRepository.findDueForUpdate(now, PageRequest.of(0, BATCH_SIZE));
+            for (EmailOutbox email : due) {
+                email.setAttempts(email.getAttempts() + 1);
+                email.setNextAttemptAt(now.plus(CLAIM_LEASE));
+            }
+            return due;
+        });
+    }
+
+    private void send(EmailOutbox email) {
+        try {
+            Map<String, String> params = objectMapper.readValue(email.getPayload(), new TypeReference<>() {});
+            switch (email.getEmailType()) {
+                case OTP -> emailService.sendOtpEmail(email.getRecipientEmail(), email.getRecipientName(),
+                        params.get("otp"));
+                case OTP_TEST_TYPE -> emailService.sendOtpEmailForTestType(email.getRecipientEmail(),
+                        email.getRecipientName(), params.get("otp"), params.get("testType"));
+                case NOTIFICATION_DIGEST -> emailService.sendNotificationDigest(email.getRecipientEmail(),
+                        email.getRecipientName(),
+                        objectMapper.readValue(params.get("items"), new TypeReference<List<Map<String, String>>>() {}));
+            }
+            transactionTemplate.executeWithoutResult(
+                    status -> emailOutboxRepository.markSent(email.getOutboxId(), LocalDateTime.now()));
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(email.getAttempts()));
+            boolean giveUp = email.getAttempts() >= maxAttempts
+                    || (email.getExpiresAt() != null && !nextAttemptAt.isBefore(email.getExpiresAt()));
+            String lastError = error;
+            transactionTemplate.executeWithoutResult(tx -> {
+                if (giveUp) {
+                    emailOutboxRepository.markFailed(email.getOutboxId(), lastError);
+                } else {
+                    emailOutboxRepository.markForRetry(email.getOutboxId(), nextAttemptAt, lastError);
+                }
+            });
+            log.warn("Sending {} email {} failed (attempt {} of {}): {}", email.getEmailType(), email.getOutboxId(),
+                    email.getAttempts(), maxAttempts, error);
+        }
+    }
+
+    private static LocalDateTime expiresAt(EmailOutbox.EmailType emailType, LocalDateTime now) {
+        return switch (emailType) {
+            case OTP, OTP_TEST_TYPE -> now.plus(PatientOtpService.OTP_VALIDITY);
+            case NOTIFICATION_DIGEST -> null;
+        };
+    }
+
+    static Duration backoff(int attempts) {
+        Duration backoff = BASE_BACKOFF.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 20));
+        return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+    }
+}
@@ -0,0 +1,109 @@
+package com.pulseiq.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An email body parsed once into UTF-8 static segments and {@code {{name}}} slots. Rendering
+ * encodes the slot values, then copies everything into one byte array of the exact size; the
+ * template text is never scanned again. Values are HTML-escaped for HTML templates.
+ */
+public final class EmailTemplate {
+
+    private final byte[][] segments;
+    private final String[] slots;
+    private final boolean escapeHtml;
+    private final int staticLength;
+
+    private EmailTemplate(byte[][] segments, String[] slots, boolean escapeHtml) {
+        this.segments = segments;
+        this.slots = slots;
+        this.escapeHtml = escapeHtml;
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.staticLength = length;
+    }
+
+    public static EmailTemplate compile(String source, boolean escapeHtml) {
+        List<byte[]> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = source.indexOf("{{", position)) >= 0) {
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed {{ at offset " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            if (!name.matches("[A-Za-z][A-Za-z0-9]*")) {
+                throw new IllegalArgumentException("Invalid template variable '" + name + "' at offset " + open);
+            }
+            segments.add(source.substring(position, open).getBytes(StandardCharsets.UTF_8));
+            slots.add(name);
+            position = close + 2;
+        }
+        segments.add(source.substring(position).getBytes(StandardCharsets.UTF_8));
+        return new EmailTemplate(segments.toArray(new byte[0][]), slots.toArray(new String[0]), escapeHtml);
+    }
+
+    public Set<String> variables() {
+        return new LinkedHashSet<>(List.of(slots));
+    }
+
+    public byte[] render(Map<String, String> values) {
+        byte[][] encoded = new byte[slots.length][];
+        int length = staticLength;
+        for (int i = 0; i < slots.length; i++) {
+            String value = values.get(slots[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing template value: " + slots[i]);
+            }
+            encoded[i] = (escapeHtml ? escapeHtml(value) : value).getBytes(StandardCharsets.UTF_8);
+            length += encoded[i].length;
+        }
+
+        byte[] rendered = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < slots.length; i++) {
+            System.arraycopy(segments[i], 0, rendered, offset, segments[i].length);
+            offset += segments[i].length;
+            System.arraycopy(encoded[i], 0, rendered, offset, encoded[i].length);
+            offset += encoded[i].length;
+        }
+        byte[] last = segments[slots.length];
+        System.arraycopy(last, 0, rendered, offset, last.length);
+        return rendered;
+    }
+
+    static String escapeHtml(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '&' -> "&amp;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped != null ? escaped.toString() : value;
+    }
+}
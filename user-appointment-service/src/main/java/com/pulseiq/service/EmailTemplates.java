@@ -0,0 +1,75 @@
+package com.pulseiq.service;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The email templates under {@code classpath:email-templates}, compiled once at startup.
+ */
+@Component
+public class EmailTemplates {
+
+    public static final String OTP = "otp.html";
+    public static final String OTP_TEST_TYPE = "otp-test-type.html";
+    public static final String DIGEST_HEADER = "digest-header.html";
+    public static final String DIGEST_ITEM = "digest-item.html";
+    public static final String DIGEST_FOOTER = "digest-footer.html";
+
+    private static final List<String> TEMPLATE_NAMES = List.of(OTP, OTP_TEST_TYPE, DIGEST_HEADER, DIGEST_ITEM, DIGEST_FOOTER);
+
+    private final Map<String, EmailTemplate> templates = new HashMap<>();
+
+    public EmailTemplates() {
+        for (String name : TEMPLATE_NAMES) {
+            try (InputStream source = new ClassPathResource("email-templates/" + name).getInputStream()) {
+                String text = new String(source.readAllBytes(), StandardCharsets.UTF_8);
+                templates.put(name, EmailTemplate.compile(text, name.endsWith(".html")));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not load email template " + name, e);
+            }
+        }
+    }
+
+    public byte[] render(String name, Map<String, String> values) {
+        EmailTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        return template.render(values);
+    }
+
+    /**
+     * Render a template as the body of the message, without converting it back to a String.
+     */
+    public void renderInto(MimeMessage message, String name, Map<String, String> values) throws MessagingException {
+        String contentType = (name.endsWith(".html") ? "text/html" : "text/plain") + "; charset=UTF-8";
+        message.setDataHandler(new DataHandler(new ByteArrayDataSource(render(name, values), contentType)));
+    }
+
+    /**
+     * Render a digest as the body of the message: the header once, the item template for each
+     * item, then the footer.
+     */
+    public void renderDigestInto(MimeMessage message, Map<String, String> header, List<Map<String, String>> items)
+            throws MessagingException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(render(DIGEST_HEADER, header));
+        for (Map<String, String> item : items) {
+            body.writeBytes(render(DIGEST_ITEM, item));
+        }
+        body.writeBytes(render(DIGEST_FOOTER, Map.of()));
+        message.setDataHandler(new DataHandler(new ByteArrayDataSource(body.toByteArray(), "text/html; charset=UTF-8")));
+    }
+}
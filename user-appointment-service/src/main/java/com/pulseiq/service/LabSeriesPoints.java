@@ -0,0 +1,186 @@
+package com.pulseiq.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The points of a lab series, ordered by time, held as three primitive columns. The packed form
+ * is a point count followed by the time column (delta-encoded epoch seconds), the test id column
+ * (zig-zag deltas) and the raw value column, so a series of a few hundred values fits in a few
+ * kilobytes.
+ */
+final class LabSeriesPoints {
+
+    private long[] times;
+    private long[] testIds;
+    private double[] values;
+    private int size;
+
+    LabSeriesPoints() {
+        this(new long[0], new long[0], new double[0], 0);
+    }
+
+    private LabSeriesPoints(long[] times, long[] testIds, double[] values, int size) {
+        this.times = times;
+        this.testIds = testIds;
+        this.values = values;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long time(int index) {
+        return times[index];
+    }
+
+    long testId(int index) {
+        return testIds[index];
+    }
+
+    double value(int index) {
+        return values[index];
+    }
+
+    boolean containsTest(long testId) {
+        return indexOfTest(testId) >= 0;
+    }
+
+    /**
+     * Set the value measured by a test, replacing any value that test recorded before.
+     */
+    void put(long testId, long time, double value) {
+        int existing = indexOfTest(testId);
+        if (existing >= 0) {
+            removeAt(existing);
+        }
+        ensureCapacity(size + 1);
+        // Insert after points with the same time so re-uploads keep their order
+        int position = size;
+        while (position > 0 && times[position - 1] > time) {
+            position--;
+        }
+        System.arraycopy(times, position, times, position + 1, size - position);
+        System.arraycopy(testIds, position, testIds, position + 1, size - position);
+        System.arraycopy(values, position, values, position + 1, size - position);
+        times[position] = time;
+        testIds[position] = testId;
+        values[position] = value;
+        size++;
+    }
+
+    /**
+     * Index of the first point at or after {@code time}.
+     */
+    int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + size * 12);
+        writeVarLong(out, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            // Times are sorted, so deltas are small and non-negative
+            writeVarLong(out, times[i] - previous);
+            previous = times[i];
+        }
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long delta = testIds[i] - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = testIds[i];
+        }
+        ByteBuffer valueColumn = ByteBuffer.allocate(size * Double.BYTES);
+        for (int i = 0; i < size; i++) {
+            valueColumn.putDouble(values[i]);
+        }
+        out.writeBytes(valueColumn.array());
+        return out.toByteArray();
+    }
+
+    static LabSeriesPoints decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new LabSeriesPoints();
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int size = (int) readVarLong(in);
+        long[] times = new long[size];
+        long[] testIds = new long[size];
+        double[] values = new double[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += readVarLong(in);
+            times[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            long zigZag = readVarLong(in);
+            previous += (zigZag >>> 1) ^ -(zigZag & 1);
+            testIds[i] = previous;
+        }
+        for (int i = 0; i < size; i++) {
+            values[i] = in.getDouble();
+        }
+        return new LabSeriesPoints(times, testIds, values, size);
+    }
+
+    private int indexOfTest(long testId) {
+        for (int i = 0; i < size; i++) {
+            if (testIds[i] == testId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(times, index + 1, times, index, moved);
+        System.arraycopy(testIds, index + 1, testIds, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (times.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, times.length * 2);
+        times = Arrays.copyOf(times, newCapacity);
+        testIds = Arrays.copyOf(testIds, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,75 @@
+package com.pulseiq.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks common analyte values out of a report's text, e.g. "HbA1c ....... 6.1 %". Only the
+ * analytes listed here are recognized, with the unit labs usually report them in; values
+ * entered by technicians take precedence over parsed ones.
+ */
+@Component
+public class LabValueParser {
+
+    private static final Map<String, Analyte> ANALYTES = new LinkedHashMap<>();
+
+    static {
+        register("hba1c", "%", "hba1c|hb\\s?a1c|glycated\\s+ha?emoglobin");
+        register("glucose", "mg/dL", "(?:fasting\\s+)?(?:blood\\s+|plasma\\s+)?glucose");
+        register("creatinine", "mg/dL", "(?:serum\\s+)?creatinine");
+        register("urea", "mg/dL", "blood\\s+urea\\s+nitrogen|bun|urea");
+        register("hdl", "mg/dL", "hdl(?:[\\s-]+cholesterol)?");
+        register("ldl", "mg/dL", "ldl(?:[\\s-]+cholesterol)?");
+        register("cholesterol", "mg/dL", "total\\s+cholesterol");
+        register("triglycerides", "mg/dL", "triglycerides?");
+        register("hemoglobin", "g/dL", "(?<!glycated\\s)ha?emoglobin(?!\\s*a1c)");
+        register("tsh", "mIU/L", "tsh|thyroid\\s+stimulating\\s+hormone");
+        register("sodium", "mmol/L", "sodium");
+        register("potassium", "mmol/L", "potassium");
+    }
+
+    private static void register(String code, String unit, String namePattern) {
+        // Name, then up to 30 non-digit characters (dots, colons, flags), then a standalone number
+        Pattern pattern = Pattern.compile("\\b(?:" + namePattern + ")\\b[^0-9\\n]{0,30}?"
+                + "(?<![A-Za-z0-9.])(\\d{1,5}(?:\\.\\d+)?)(?![A-Za-z0-9])",
+                Pattern.CASE_INSENSITIVE);
+        ANALYTES.put(code, new Analyte(code, unit, pattern));
+    }
+
+    /**
+     * The first value found for each recognized analyte.
+     */
+    public List<ParsedValue> parse(String text) {
+        List<ParsedValue> parsed = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return parsed;
+        }
+        for (Analyte analyte : ANALYTES.values()) {
+            Matcher matcher = analyte.pattern().matcher(text);
+            if (matcher.find()) {
+                parsed.add(new ParsedValue(analyte.code(), Double.parseDouble(matcher.group(1)), analyte.unit()));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Code an analyte name is stored under: lower case letters and digits only.
+     */
+    public static String normalize(String analyte) {
+        return analyte == null ? "" : analyte.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    public record ParsedValue(String analyte, double value, String unit) {
+    }
+
+    private record Analyte(String code, String unit, Pattern pattern) {
+    }
+}
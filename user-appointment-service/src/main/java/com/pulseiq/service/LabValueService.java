@@ -0,0 +1,212 @@
+package com.pulseiq.service;
+
+import com.pulseiq.dto.LabTrendDto;
+import com.pulseiq.dto.LabValueDto;
+import com.pulseiq.entity.Appointment.AppointmentStatus;
+import com.pulseiq.entity.LabSeries;
+import com.pulseiq.entity.TestResult;
+import com.pulseiq.repository.AppointmentRepository;
+import com.pulseiq.repository.LabSeriesRepository;
+import com.pulseiq.repository.TestResultRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numeric lab values per patient and analyte, entered by technicians or parsed from reports,
+ * kept as one packed {@link LabSeries} row per analyte and served as (downsampled) trends.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class LabValueService {
+
+    private static final int DEFAULT_MAX_POINTS = 200;
+    private static final int MAX_POINTS_LIMIT = 1000;
+
+    private final LabSeriesRepository labSeriesRepository;
+    private final TestResultRepository testResultRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    /**
+     * Attach values to a test result (technician who uploaded it only). A value given again for
+     * the same analyte replaces the earlier one.
+     */
+    public void attachValues(Long testId, String technicianId, List<LabValueDto> labValues) {
+        TestResult testResult = testResultRepository.findById(testId)
+                .orElseThrow(() -> new RuntimeException("Test result not found with ID: " + testId));
+        if (!testResult.getTechnicianId().equals(technicianId)) {
+            throw new RuntimeException("You don't have permission to update this test result");
+        }
+
+        LocalDateTime measuredAt = measuredAt(testResult);
+        for (LabValueDto labValue : labValues) {
+            String analyte = LabValueParser.normalize(labValue.getAnalyte());
+            if (analyte.isEmpty() || analyte.length() > 40 || labValue.getValue() == null
+                    || labValue.getValue().isNaN() || labValue.getValue().isInfinite()) {
+                throw new RuntimeException("Invalid lab value for analyte: " + labValue.getAnalyte());
+            }
+            LabSeries series = lockSeries(testResult.getPatientId(), analyte, labValue.getUnit());
+            if (!sameUnit(series.getUnit(), labValue.getUnit())) {
+                throw new RuntimeException("Unit " + labValue.getUnit() + " does not match " + series.getUnit()
+                        + " already recorded for " + analyte);
+            }
+            LabSeriesPoints points = LabSeriesPoints.decode(series.getPoints());
+            points.put(testId, toEpochSecond(measuredAt), labValue.getValue());
+            save(series, points);
+        }
+    }
+
+    /**
+     * Record values parsed from a report's text. Analytes that already have a value for this
+     * test, e.g. entered by the technician, are left alone.
+     */
+    public void recordParsedValues(String patientId, Long testId, LocalDateTime measuredAt,
+                                   List<LabValueParser.ParsedValue> parsedValues) {
+        for (LabValueParser.ParsedValue parsed : parsedValues) {
+            LabSeries series = lockSeries(patientId, parsed.analyte(), parsed.unit());
+            if (!sameUnit(series.getUnit(), parsed.unit())) {
+                continue;
+            }
+            LabSeriesPoints points = LabSeriesPoints.decode(series.getPoints());
+            if (points.containsTest(testId)) {
+                continue;
+            }
+            points.put(testId, toEpochSecond(measuredAt), parsed.value());
+            save(series, points);
+        }
+        testResultRepository.markLabValuesParsed(testId, LocalDateTime.now());
+    }
+
+    /**
+     * Analytes with values for the patient: analyte, unit and number of values.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAnalytes(String patientId, String requesterId) {
+        checkAccess(patientId, requesterId);
+        List<Map<String, Object>> analytes = new ArrayList<>();
+        for (Object[] row : labSeriesRepository.findSummariesByPatientId(patientId)) {
+            Map<String, Object> analyte = new HashMap<>();
+            analyte.put("analyte", row[0]);
+            analyte.put("unit", row[1]);
+            analyte.put("points", row[2]);
+            analytes.add(analyte);
+        }
+        return analytes;
+    }
+
+    /**
+     * Values of one analyte between {@code from} and {@code to} (both optional). When there are
+     * more than {@code maxPoints}, the range is split into that many equal time buckets and each
+     * bucket is reduced to its mean, min and max.
+     */
+    @Transactional(readOnly = true)
+    public LabTrendDto getTrend(String patientId, String analyte, LocalDateTime from, LocalDateTime to,
+                                Integer maxPoints, String requesterId) {
+        checkAccess(patientId, requesterId);
+        String code = LabValueParser.normalize(analyte);
+        LabSeries series = labSeriesRepository.findByPatientIdAndAnalyte(patientId, code).orElse(null);
+        if (series == null) {
+            return new LabTrendDto(patientId, code, null, 0, List.of());
+        }
+
+        LabSeriesPoints points = LabSeriesPoints.decode(series.getPoints());
+        int start = from != null ? points.lowerBound(toEpochSecond(from)) : 0;
+        int end = to != null ? points.lowerBound(toEpochSecond(to) + 1) : points.size();
+        int total = Math.max(end - start, 0);
+        int limit = maxPoints != null ? Math.min(Math.max(maxPoints, 2), MAX_POINTS_LIMIT) : DEFAULT_MAX_POINTS;
+
+        List<LabTrendDto.Point> trend = total <= limit
+                ? rawPoints(points, start, end)
+                : downsample(points, start, end, limit);
+        return new LabTrendDto(patientId, code, series.getUnit(), total, trend);
+    }
+
+    private List<LabTrendDto.Point> rawPoints(LabSeriesPoints points, int start, int end) {
+        List<LabTrendDto.Point> trend = new ArrayList<>(Math.max(end - start, 0));
+        for (int i = start; i < end; i++) {
+            double value = points.value(i);
+            trend.add(new LabTrendDto.Point(toDateTime(points.time(i)), value, value, value, 1, points.testId(i)));
+        }
+        return trend;
+    }
+
+    private List<LabTrendDto.Point> downsample(LabSeriesPoints points, int start, int end, int buckets) {
+        long firstTime = points.time(start);
+        long span = points.time(end - 1) - firstTime + 1;
+        List<LabTrendDto.Point> trend = new ArrayList<>(buckets);
+        int i = start;
+        while (i < end) {
+            int bucket = (int) ((points.time(i) - firstTime) * buckets / span);
+            long timeSum = 0;
+            double sum = 0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            int count = 0;
+            Long testId = null;
+            while (i < end && (int) ((points.time(i) - firstTime) * buckets / span) == bucket) {
+                double value = points.value(i);
+                timeSum += points.time(i) - firstTime;
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                testId = points.testId(i);
+                count++;
+                i++;
+            }
+            // Each bucket is placed at the mean time of its values
+            trend.add(new LabTrendDto.Point(toDateTime(firstTime + timeSum / count), sum / count, min, max, count,
+                    count == 1 ? testId : null));
+        }
+        return trend;
+    }
+
+    private LabSeries lockSeries(String patientId, String analyte, String unit) {
+        labSeriesRepository.insertIfAbsent(patientId, analyte);
+        LabSeries series = labSeriesRepository.findForUpdate(patientId, analyte)
+                .orElseThrow(() -> new RuntimeException("Lab series not found for analyte: " + analyte));
+        if (series.getUnit() == null && unit != null && !unit.isBlank()) {
+            series.setUnit(unit.trim());
+        }
+        return series;
+    }
+
+    private void save(LabSeries series, LabSeriesPoints points) {
+        series.setPoints(points.encode());
+        series.setPointCount(points.size());
+        series.setUpdatedAt(LocalDateTime.now());
+        labSeriesRepository.save(series);
+    }
+
+    private void checkAccess(String patientId, String requesterId) {
+        if (patientId.equals(requesterId)) {
+            return;
+        }
+        if (!appointmentRepository.existsByDoctorIdAndPatientIdAndStatus(requesterId, patientId, AppointmentStatus.COMPLETED)) {
+            throw new RuntimeException("You don't have permission to access this patient's test results");
+        }
+    }
+
+    private static boolean sameUnit(String recorded, String given) {
+        return recorded == null || given == null || recorded.equalsIgnoreCase(given.trim());
+    }
+
+    static LocalDateTime measuredAt(TestResult testResult) {
+        return testResult.getTestDate() != null ? testResult.getTestDate() : testResult.getUploadedAt();
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
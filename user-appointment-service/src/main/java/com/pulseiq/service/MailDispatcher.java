@@ -0,0 +1,291 @@
+package com.pulseiq.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends mail over a small pool of long-lived SMTP connections instead of opening a connection
+ * (and doing the STARTTLS handshake and login) for every message. Messages are queued; each
+ * pooled connection has a worker that sends whatever has queued up as one batch. A connection
+ * that fails is reopened and the message tried once more; an idle connection is closed before
+ * the server drops it. A message whose sender gave up waiting is taken off the queue and never
+ * sent, so a caller that retries after a timeout does not deliver it twice.
+ */
+@Slf4j
+@Service
+public class MailDispatcher implements MeterBinder {
+
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final long SEND_TIMEOUT_SECONDS = 60;
+
+    private final JavaMailSenderImpl mailSender;
+    private final int batchSize;
+    private final long idleTimeoutMillis;
+    private final BlockingQueue<PendingMessage> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ExecutorService workers;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+
+    public MailDispatcher(JavaMailSender mailSender,
+                          @Value("${app.mail.pool-size:2}") int poolSize,
+                          @Value("${app.mail.batch-size:20}") int batchSize,
+                          @Value("${app.mail.idle-timeout-ms:60000}") long idleTimeoutMillis) {
+        if (!(mailSender instanceof JavaMailSenderImpl mailSenderImpl)) {
+            throw new IllegalStateException("MailDispatcher needs a JavaMailSenderImpl, got " + mailSender.getClass());
+        }
+        this.mailSender = mailSenderImpl;
+        this.batchSize = batchSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "mail-dispatcher-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < poolSize; i++) {
+            workers.execute(new Worker());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queue a message; the future completes once the server has accepted it.
+     */
+    public CompletableFuture<Void> submit(MimeMessage message) {
+        return enqueue(message).result();
+    }
+
+    /**
+     * Queue a message and wait until it is sent.
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        PendingMessage pending = enqueue(message);
+        try {
+            pending.result().get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw sendFailure(e);
+        } catch (TimeoutException e) {
+            if (abandon(pending)) {
+                throw new MessagingException("Timed out waiting to send mail");
+            }
+            // A worker is already handing it to the server (bounded by mail.smtp.timeout); report
+            // what actually happened rather than a failure the caller would retry
+            await(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(pending);
+            throw new MessagingException("Interrupted while sending mail");
+        }
+    }
+
+    private static MessagingException sendFailure(ExecutionException e) {
+        return e.getCause() instanceof MessagingException messagingException
+                ? messagingException
+                : new MessagingException("Failed to send mail", e.getCause() instanceof Exception cause ? cause : e);
+    }
+
+    private PendingMessage enqueue(MimeMessage message) {
+        PendingMessage pending = new PendingMessage(message, new CompletableFuture<>(), new AtomicBoolean());
+        if (!queue.offer(pending)) {
+            failed.increment();
+            pending.result().completeExceptionally(new MessagingException("Mail queue is full"));
+        }
+        return pending;
+    }
+
+    /**
+     * Take a message that no worker has picked up yet off the queue; false if one already has.
+     */
+    private boolean abandon(PendingMessage pending) {
+        if (!pending.claim()) {
+            return false;
+        }
+        queue.remove(pending);
+        failed.increment();
+        pending.result().cancel(false);
+        return true;
+    }
+
+    private void await(PendingMessage pending) throws MessagingException {
+        try {
+            pending.result().get();
+        } catch (ExecutionException e) {
+            throw sendFailure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while sending mail");
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long attempts = sent.sum() + failed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sent", sent.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("connectionsOpened", connectionsOpened.sum());
+        stats.put("queued", queue.size());
+        stats.put("averageSendMillis", attempts == 0 ? 0.0 : sendNanos.sum() / 1_000_000.0 / attempts);
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pulseiq.mail.sent", sent, LongAdder::sum)
+                .description("Messages accepted by the SMTP server").register(registry);
+        FunctionCounter.builder("pulseiq.mail.failed", failed, LongAdder::sum)
+                .description("Messages that could not be sent").register(registry);
+        FunctionCounter.builder("pulseiq.mail.connections.opened", connectionsOpened, LongAdder::sum)
+                .description("SMTP connections opened").register(registry);
+        FunctionTimer.builder("pulseiq.mail.send", this,
+                        dispatcher -> dispatcher.sent.sum() + dispatcher.failed.sum(),
+                        dispatcher -> dispatcher.sendNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time to hand one message to the SMTP server").register(registry);
+        Gauge.builder("pulseiq.mail.queue.size", queue, BlockingQueue::size)
+                .description("Messages waiting for a connection").register(registry);
+    }
+
+    private class Worker implements Runnable {
+
+        private Transport transport;
+
+        @Override
+        public void run() {
+            List<PendingMessage> batch = new ArrayList<>(batchSize);
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    PendingMessage first = queue.poll(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        close();
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    batches.increment();
+                    for (PendingMessage pending : batch) {
+                        // Skip messages whose sender timed out and gave up on them
+                        if (pending.claim()) {
+                            send(pending);
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void send(PendingMessage pending) {
+            long start = System.nanoTime();
+            try {
+                MimeMessage message = pending.message();
+                if (message.getSentDate() == null) {
+                    message.setSentDate(new Date());
+                }
+                message.saveChanges();
+                try {
+                    connection().sendMessage(message, message.getAllRecipients());
+                } catch (MessagingException | IllegalStateException e) {
+                    if (transport != null && transport.isConnected()) {
+                        // The connection is fine, so the server rejected the message itself
+                        throw e;
+                    }
+                    // The server dropped the connection; reconnect and try once more
+                    log.debug("SMTP connection lost, reconnecting: {}", e.getMessage());
+                    close();
+                    connection().sendMessage(message, message.getAllRecipients());
+                }
+                sent.increment();
+                pending.result().complete(null);
+            } catch (Exception e) {
+                failed.increment();
+                if (transport != null && !transport.isConnected()) {
+                    close();
+                }
+                pending.result().completeExceptionally(e);
+            } finally {
+                sendNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        private Transport connection() throws MessagingException {
+            // A dropped connection shows up as a failed send, which reconnects; no NOOP per message
+            if (transport == null) {
+                String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+                String username = mailSender.getUsername();
+                String password = mailSender.getPassword();
+                if ("".equals(username)) {
+                    username = null;
+                    if ("".equals(password)) {
+                        password = null;
+                    }
+                }
+                Transport opened = mailSender.getSession().getTransport(protocol);
+                opened.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+                connectionsOpened.increment();
+                transport = opened;
+            }
+            return transport;
+        }
+
+        private void close() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("Error closing SMTP connection: {}", e.getMessage());
+                }
+                transport = null;
+            }
+        }
+    }
+
+    private record PendingMessage(MimeMessage message, CompletableFuture<Void> result, AtomicBoolean claimed) {
+
+        /**
+         * Either the worker that sends the message or the caller that gives up on it wins.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.dto.MedicineCatalogDto;
+import com.pulseiq.dto.MedicineDto;
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable view of the active medicine catalog: the medicine list, category and
+ * first-letter facet counts, and the same data pre-serialized as JSON with its ETag.
+ * A new snapshot is built whenever the catalog changes; readers never see a partial one.
+ */
+@Getter
+public final class MedicineCatalogSnapshot {
+
+    private final long version;
+    private final List<MedicineDto> medicines;
+    private final Map<String, Long> categoryCounts;
+    private final Map<String, Long> letterCounts;
+    private final byte[] json;
+    private final String etag;
+
+    private MedicineCatalogSnapshot(long version, List<MedicineDto> medicines,
+                                    Map<String, Long> categoryCounts, Map<String, Long> letterCounts,
+                                    byte[] json) {
+        this.version = version;
+        this.medicines = medicines;
+        this.categoryCounts = categoryCounts;
+        this.letterCounts = letterCounts;
+        this.json = json;
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+    }
+
+    /**
+     * Build a snapshot from the active medicines in a single pass over the list.
+     */
+    public static MedicineCatalogSnapshot build(long version, List<MedicineDto> activeMedicines,
+                                                ObjectMapper objectMapper) {
+        List<MedicineDto> medicines = new ArrayList<>(activeMedicines.size());
+        Map<String, Long> categoryCounts = new TreeMap<>();
+        Map<String, Long> letterCounts = new TreeMap<>();
+
+        for (MedicineDto medicine : activeMedicines) {
+            medicines.add(medicine);
+            if (medicine.getCategory() != null) {
+                categoryCounts.merge(medicine.getCategory(), 1L, Long::sum);
+            }
+            String name = medicine.getMedicineName();
+            if (name != null && !name.isEmpty()) {
+                letterCounts.merge(name.substring(0, 1).toUpperCase(), 1L, Long::sum);
+            }
+        }
+
+        List<MedicineDto> frozenMedicines = Collections.unmodifiableList(medicines);
+        Map<String, Long> frozenCategories = Collections.unmodifiableMap(categoryCounts);
+        Map<String, Long> frozenLetters = Collections.unmodifiableMap(letterCounts);
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(
+                    new MedicineCatalogDto(version, frozenMedicines, frozenCategories, frozenLetters));
+            return new MedicineCatalogSnapshot(version, frozenMedicines, frozenCategories, frozenLetters, json);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize medicine catalog", e);
+        }
+    }
+
+    public List<String> getCategories() {
+        return new ArrayList<>(categoryCounts.keySet());
+    }
+
+    public List<String> getLetters() {
+        return new ArrayList<>(letterCounts.keySet());
+    }
+}
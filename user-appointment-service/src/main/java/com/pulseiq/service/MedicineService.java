@@ -1,26 +1,72 @@
 package com.pulseiq.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pulseiq.dto.MedicineDto;
 import com.pulseiq.entity.Medicine;
+import com.pulseiq.repository.CatalogVersionRepository;
 import com.pulseiq.repository.MedicineRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MedicineService {
     
+    static final String CATALOG_NAME = "medicine";
+    
     private final MedicineRepository medicineRepository;
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final ObjectMapper objectMapper;
+    
+    // Writes on other replicas are picked up within this long
+    @Value("${app.medicine-catalog.version-check-ms:5000}")
+    private long versionCheckMillis = 5000;
+    
+    // Catalog snapshot, rebuilt lazily once the catalog version in the database moves past it
+    private volatile MedicineCatalogSnapshot catalogSnapshot;
+    private volatile long versionCheckedAt;
+    private volatile boolean versionCheckDue = true;
+    
+    /**
+     * Get the current catalog snapshot (list, facet counts and pre-serialized JSON)
+     */
+    public MedicineCatalogSnapshot getCatalogSnapshot() {
+        MedicineCatalogSnapshot snapshot = catalogSnapshot;
+        if (snapshot != null && !versionCheckDue
+                && System.nanoTime() - versionCheckedAt < TimeUnit.MILLISECONDS.toNanos(versionCheckMillis)) {
+            return snapshot;
+        }
+        synchronized (this) {
+            // Read before the medicines, so a snapshot is never labelled newer than its data
+            versionCheckDue = false;
+            long version = catalogVersionRepository.findVersion(CATALOG_NAME).orElse(0L);
+            versionCheckedAt = System.nanoTime();
+            snapshot = catalogSnapshot;
+            if (snapshot == null || snapshot.getVersion() != version) {
+                List<MedicineDto> activeMedicines = medicineRepository.findByIsActiveTrueOrderByMedicineNameAsc()
+                        .stream()
+                        .map(this::convertToDto)
+                        .collect(Collectors.toList());
+                snapshot = MedicineCatalogSnapshot.build(version, activeMedicines, objectMapper);
+                catalogSnapshot = snapshot;
+                log.info("Rebuilt medicine catalog snapshot v{} with {} medicines", version, activeMedicines.size());
+            }
+            return snapshot;
+        }
+    }
     
     public List<MedicineDto> getAllActiveMedicines() {
-        return medicineRepository.findByIsActiveTrue()
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return getCatalogSnapshot().getMedicines();
     }
     
     public List<MedicineDto> searchMedicinesByName(String name) {
@@ -45,11 +91,11 @@ public class MedicineService {
     }
     
     public List<String> getAllCategories() {
-        return medicineRepository.findDistinctCategories();
+        return getCatalogSnapshot().getCategories();
     }
     
     public List<String> getAllFirstLetters() {
-        return medicineRepository.findDistinctFirstLetters();
+        return getCatalogSnapshot().getLetters();
     }
     
     public Optional<MedicineDto> getMedicineById(Long medicineId) {
@@ -62,6 +108,7 @@ public class MedicineService {
         Medicine medicine = convertToEntity(medicineDto);
         medicine.setIsActive(true);
         Medicine savedMedicine = medicineRepository.save(medicine);
+        bumpCatalogVersion();
         return convertToDto(savedMedicine);
     }
     
@@ -79,6 +126,7 @@ public class MedicineService {
         existingMedicine.setPrice(medicineDto.getPrice());
         
         Medicine updatedMedicine = medicineRepository.save(existingMedicine);
+        bumpCatalogVersion();
         return convertToDto(updatedMedicine);
     }
     
@@ -88,6 +136,26 @@ public class MedicineService {
                 .orElseThrow(() -> new RuntimeException("Medicine not found"));
         medicine.setIsActive(false);
         medicineRepository.save(medicine);
+        bumpCatalogVersion();
+    }
+    
+    /**
+     * Bump the catalog version in the current transaction, so every replica rebuilds its snapshot
+     * once the write commits; rolled-back writes leave it untouched. This replica re-checks on its
+     * next read rather than after the version-check interval.
+     */
+    private void bumpCatalogVersion() {
+        catalogVersionRepository.nextVersion(CATALOG_NAME);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versionCheckDue = true;
+                }
+            });
+        } else {
+            versionCheckDue = true;
+        }
     }
     
     private MedicineDto convertToDto(Medicine medicine) {
@@ -0,0 +1,170 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.entity.EmailOutbox;
+import com.pulseiq.entity.Notification;
+import com.pulseiq.entity.User;
+import com.pulseiq.repository.PatientRepository;
+import com.pulseiq.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emails patients about new notifications in digests. The first email-worthy notification for a
+ * patient opens a window of {@code app.notifications.digest.window-ms}; everything that arrives
+ * for them before it closes goes out as one email through the outbox. A digest is sent early once
+ * it holds {@value #MAX_ITEMS} notifications. Off unless {@code app.notifications.digest.enabled}
+ * is set.
+ * <p>
+ * Open digests live in memory on the node that created the notifications. They are sent on
+ * shutdown, but a hard crash loses them; the notifications themselves are unaffected.
+ */
+@Slf4j
+@Service
+public class NotificationDigestService {
+
+    static final int MAX_ITEMS = 20;
+
+    // OTP notifications have their own emails
+    private static final Set<Notification.NotificationType> EMAIL_TYPES = EnumSet.of(
+            Notification.NotificationType.TEST_RESULT_UPLOADED,
+            Notification.NotificationType.APPOINTMENT_BOOKED,
+            Notification.NotificationType.APPOINTMENT_CANCELLED,
+            Notification.NotificationType.APPOINTMENT_REMINDER,
+            Notification.NotificationType.PRESCRIPTION_UPLOADED);
+
+    private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' hh:mm a");
+
+    private final EmailOutboxService emailOutboxService;
+    private final UserRepository userRepository;
+    private final PatientRepository patientRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final Map<String, List<Map<String, String>>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public NotificationDigestService(EmailOutboxService emailOutboxService,
+                                     UserRepository userRepository,
+                                     PatientRepository patientRepository,
+                                     ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.notifications.digest.enabled:false}") boolean enabled,
+                                     @Value("${app.notifications.digest.window-ms:120000}") long windowMillis) {
+        this.emailOutboxService = emailOutboxService;
+        this.userRepository = userRepository;
+        this.patientRepository = patientRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-digest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        new ArrayList<>(pending.keySet()).forEach(this::send);
+    }
+
+    /**
+     * Add the notification to its recipient's digest once the current transaction commits.
+     */
+    public void addAfterCommit(Notification notification) {
+        if (!enabled || !isEmailWorthy(notification)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(notification);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(notification);
+            }
+        });
+    }
+
+    static boolean isEmailWorthy(Notification notification) {
+        return "PATIENT".equals(notification.getRecipientType())
+                && (EMAIL_TYPES.contains(notification.getType())
+                        || "PRESCRIPTION".equals(notification.getRelatedEntityType()));
+    }
+
+    void add(Notification notification) {
+        String recipientId = notification.getRecipientId();
+        Map<String, String> item = Map.of(
+                "title", notification.getTitle(),
+                "message", notification.getMessage(),
+                "time", notification.getCreatedAt() != null ? notification.getCreatedAt().format(timeFormatter) : "");
+
+        boolean[] opened = new boolean[1];
+        boolean[] full = new boolean[1];
+        pending.compute(recipientId, (id, items) -> {
+            if (items == null) {
+                items = new ArrayList<>();
+                opened[0] = true;
+            }
+            items.add(item);
+            full[0] = items.size() >= MAX_ITEMS;
+            return items;
+        });
+        if (full[0]) {
+            scheduler.execute(() -> send(recipientId));
+        } else if (opened[0]) {
+            scheduler.schedule(() -> send(recipientId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    int pendingRecipients() {
+        return pending.size();
+    }
+
+    private void send(String recipientId) {
+        List<Map<String, String>> items = pending.remove(recipientId);
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        try {
+            String payload = objectMapper.writeValueAsString(items);
+            transactionTemplate.executeWithoutResult(status -> {
+                String email = userRepository.findByUserId(recipientId).map(User::getEmail).orElse(null);
+                if (email == null || email.isBlank()) {
+                    log.warn("No email for {}, skipping digest of {} notifications", recipientId, items.size());
+                    return;
+                }
+                String name = patientRepository.findByPatientId(recipientId)
+                        .map(patient -> patient.getFirstName() + " " + patient.getLastName())
+                        .orElse("Patient");
+                emailOutboxService.enqueue(EmailOutbox.EmailType.NOTIFICATION_DIGEST, email, name,
+                        Map.of("items", payload));
+            });
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not queue notification digest for {}: {}", recipientId, e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.pulseiq.service;
 
 import com.pulseiq.entity.Notification;
 import com.pulseiq.dto.NotificationDto;
+import com.pulseiq.dto.NotificationPageDto;
 import java.util.List;
 
 public interface NotificationService {
@@ -14,7 +15,16 @@ public interface NotificationService {
                                   String relatedEntityId, String relatedEntityType, String createdBy);
     
     /**
-     * Get all notifications for a recipient
+     * Create a notification in the background; it is recorded with the current transaction and
+     * written within a few milliseconds after it commits
+     */
+    void queueNotification(String recipientId, String recipientType, String title,
+                           String message, Notification.NotificationType type,
+                           String relatedEntityId, String relatedEntityType, String createdBy);
+    
+    /**
+     * Get a recipient's notifications from the months kept by {@code app.notifications.retention-months},
+     * plus any older ones that are still unread
      */
     List<NotificationDto> getNotificationsByRecipient(String recipientId);
     
@@ -23,6 +33,13 @@ public interface NotificationService {
      */
     List<NotificationDto> getUnreadNotificationsByRecipient(String recipientId);
     
+    /**
+     * One page of the recipient's inbox, newest first, optionally filtered by read state and
+     * type. Pass the returned cursor to get the next page; the size is capped.
+     */
+    NotificationPageDto getInbox(String recipientId, Boolean read, Notification.NotificationType type,
+                                 String cursor, Integer size);
+    
     /**
      * Get unread notification count for a recipient
      */
@@ -1,16 +1,26 @@
 package com.pulseiq.service;
 
+import com.pulseiq.entity.EmailOutbox;
 import com.pulseiq.entity.Notification;
 import com.pulseiq.repository.NotificationRepository;
+import com.pulseiq.dto.KeysetCursor;
 import com.pulseiq.dto.NotificationDto;
+import com.pulseiq.dto.NotificationPageDto;
+import com.pulseiq.repository.NotificationSpecifications;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,10 +28,21 @@ import java.util.stream.Collectors;
 @Slf4j
 public class NotificationServiceImpl implements NotificationService {
 
+    static final int DEFAULT_INBOX_PAGE_SIZE = 20;
+    static final int MAX_INBOX_PAGE_SIZE = 100;
+
     private final NotificationRepository notificationRepository;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final NotificationStreamService notificationStreamService;
+    private final UnreadNotificationCounter unreadNotificationCounter;
+    private final NotificationWriteBehind notificationWriteBehind;
+    private final NotificationDigestService notificationDigestService;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' hh:mm a");
 
+    // Months NotificationPartitioning keeps for everyone; before them only unread notifications remain
+    @Value("${app.notifications.retention-months:12}")
+    private int retentionMonths = 12;
+
     @Override
     @Transactional
     public Notification createNotification(String recipientId, String recipientType, String title, 
@@ -30,28 +51,39 @@ public class NotificationServiceImpl implements NotificationService {
         
         log.info("Creating notification for recipient: {}, type: {}", recipientId, type);
         
-        Notification notification = new Notification();
-        notification.setRecipientId(recipientId);
-        notification.setRecipientType(recipientType);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setType(type);
-        notification.setRelatedEntityId(relatedEntityId);
-        notification.setRelatedEntityType(relatedEntityType);
-        notification.setCreatedBy(createdBy);
+        Notification notification = newNotification(recipientId, recipientType, title, message, type,
+                relatedEntityId, relatedEntityType, createdBy);
         notification.setIsRead(false);
         notification.setCreatedAt(LocalDateTime.now());
         
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        unreadNotificationCounter.adjustAfterCommit(recipientId, 1);
+        notificationStreamService.publish(recipientId, saved.getNotificationId());
+        notificationDigestService.addAfterCommit(saved);
+        return saved;
+    }
+
+    @Override
+    public void queueNotification(String recipientId, String recipientType, String title,
+                                  String message, Notification.NotificationType type,
+                                  String relatedEntityId, String relatedEntityType, String createdBy) {
+        log.info("Queueing notification for recipient: {}, type: {}", recipientId, type);
+        notificationWriteBehind.enqueue(newNotification(recipientId, recipientType, title, message, type,
+                relatedEntityId, relatedEntityType, createdBy));
     }
 
     @Override
     public List<NotificationDto> getNotificationsByRecipient(String recipientId) {
         log.info("Fetching all notifications for recipient: {}", recipientId);
         
-        List<Notification> notifications = notificationRepository.findByRecipientIdOrderByCreatedAtDesc(recipientId);
+        LocalDateTime since = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+        List<Notification> notifications = new ArrayList<>(
+                notificationRepository.findByRecipientIdAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(recipientId, since));
+        // Still counted as unread, so still listed
+        notifications.addAll(
+                notificationRepository.findByRecipientIdAndIsReadFalseAndCreatedAtBeforeOrderByCreatedAtDesc(recipientId, since));
         return notifications.stream()
-                .map(this::convertToDto)
+                .map(NotificationDto::from)
                 .collect(Collectors.toList());
     }
 
@@ -61,37 +93,84 @@ public class NotificationServiceImpl implements NotificationService {
         
         List<Notification> notifications = notificationRepository.findByRecipientIdAndIsReadFalseOrderByCreatedAtDesc(recipientId);
         return notifications.stream()
-                .map(this::convertToDto)
+                .map(NotificationDto::from)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public NotificationPageDto getInbox(String recipientId, Boolean read, Notification.NotificationType type,
+                                        String cursor, Integer size) {
+        int pageSize = size != null ? Math.min(Math.max(size, 1), MAX_INBOX_PAGE_SIZE) : DEFAULT_INBOX_PAGE_SIZE;
+        log.info("Fetching inbox page for recipient: {}, read: {}, type: {}", recipientId, read, type);
+
+        List<Specification<Notification>> filters = new ArrayList<>();
+        filters.add(NotificationSpecifications.hasRecipientId(recipientId));
+        if (read != null) {
+            filters.add(NotificationSpecifications.isRead(read));
+        }
+        if (type != null) {
+            filters.add(NotificationSpecifications.hasType(type));
+        }
+        if (cursor != null) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            filters.add(NotificationSpecifications.after(position.timestamp(), position.id()));
+        }
+
+        // One extra row tells whether there is a next page without a count query
+        List<Notification> rows = notificationRepository.findBy(Specification.allOf(filters), query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "createdAt", "notificationId"))
+                .limit(pageSize + 1)
+                .all());
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Notification> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Notification last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getNotificationId()).encode();
+        }
+        return new NotificationPageDto(
+                page.stream().map(NotificationDto::from).collect(Collectors.toList()),
+                nextCursor);
+    }
+
     @Override
     public long getUnreadNotificationCount(String recipientId) {
         log.info("Getting unread notification count for recipient: {}", recipientId);
-        return notificationRepository.countByRecipientIdAndIsReadFalse(recipientId);
+        return unreadNotificationCounter.get(recipientId);
     }
 
     @Override
     @Transactional
     public void markAsRead(Long notificationId) {
         log.info("Marking notification as read: {}", notificationId);
-        notificationRepository.markAsReadById(notificationId);
+        notificationRepository.findById(notificationId).ifPresent(notification -> {
+            if (notificationRepository.markAsReadById(notificationId, notification.getCreatedAt()) == 0) {
+                return;
+            }
+            unreadNotificationCounter.adjustAfterCommit(notification.getRecipientId(), -1);
+            notificationStreamService.publish(notification.getRecipientId(), null);
+        });
     }
 
     @Override
     @Transactional
     public void markAllAsRead(String recipientId) {
         log.info("Marking all notifications as read for recipient: {}", recipientId);
-        notificationRepository.markAllAsReadByRecipientId(recipientId);
+        int updated = notificationRepository.markAllAsReadByRecipientId(recipientId);
+        if (updated > 0) {
+            unreadNotificationCounter.adjustAfterCommit(recipientId, -updated);
+            notificationStreamService.publish(recipientId, null);
+        }
     }
 
     @Override
-    @Transactional
     public void createTestResultNotification(String patientId, String doctorId, String testResultId, String testName, String technicianId) {
         log.info("Creating test result notification for patient: {} and doctor: {}", patientId, doctorId);
         
         // Notification for patient
-        createNotification(
+        queueNotification(
             patientId,
             "PATIENT",
             "Test Result Available",
@@ -103,7 +182,7 @@ public class NotificationServiceImpl implements NotificationService {
         );
         
         // Notification for doctor
-        createNotification(
+        queueNotification(
             doctorId,
             "DOCTOR",
             "New Test Result",
@@ -116,7 +195,6 @@ public class NotificationServiceImpl implements NotificationService {
     }
 
     @Override
-    @Transactional
     public void createAppointmentNotification(String patientId, String doctorId, String appointmentId, String appointmentDate) {
         log.info("Creating appointment notification for patient: {} and doctor: {}", patientId, doctorId);
         
@@ -130,7 +208,7 @@ public class NotificationServiceImpl implements NotificationService {
         }
         
         // Notification for doctor
-        createNotification(
+        queueNotification(
             doctorId,
             "DOCTOR",
             "New Appointment Booked",
@@ -142,7 +220,7 @@ public class NotificationServiceImpl implements NotificationService {
         );
         
         // Notification for patient (confirmation)
-        createNotification(
+        queueNotification(
             patientId,
             "PATIENT",
             "Appointment Confirmed",
@@ -174,18 +252,11 @@ public class NotificationServiceImpl implements NotificationService {
         );
         log.info("Notification saved to database for patient: {}", patientId);
         
-        // Send actual email to patient
-        try {
-            if (patientEmail != null && !patientEmail.trim().isEmpty()) {
-                log.info("Calling emailService.sendOtpEmail...");
-                emailService.sendOtpEmail(patientEmail, patientName, otp);
-                log.info("OTP email sent successfully to patient {} at {}", patientId, patientEmail);
-            } else {
-                log.warn("Patient email is null or empty for patient: {}, OTP sent via notification only", patientId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to send OTP email to patient: {}, but notification created successfully", patientId, e);
-            // Don't throw exception here - notification is still created even if email fails
+        // Queue email to patient; it is sent after this transaction commits
+        if (patientEmail != null && !patientEmail.trim().isEmpty()) {
+            emailOutboxService.enqueue(EmailOutbox.EmailType.OTP, patientEmail, patientName, Map.of("otp", otp));
+        } else {
+            log.warn("Patient email is null or empty for patient: {}, OTP sent via notification only", patientId);
         }
         
         log.info("=== OTP Email Notification Completed ===");
@@ -216,38 +287,30 @@ public class NotificationServiceImpl implements NotificationService {
         
         log.info("In-app notification created for test type OTP");
         
-        // Send email notification
-        try {
-            if (patientEmail != null && !patientEmail.trim().isEmpty()) {
-                log.info("Calling emailService.sendOtpEmailForTestType...");
-                emailService.sendOtpEmailForTestType(patientEmail, patientName, otp, testType);
-                log.info("Test type OTP email sent successfully to patient {} at {} for test type {}", patientId, patientEmail, testType);
-            } else {
-                log.warn("Patient email is null or empty for patient: {}, Test type OTP sent via notification only", patientId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to send test type OTP email to patient: {}, but notification created successfully", patientId, e);
-            // Don't throw exception here - notification is still created even if email fails
+        // Queue email notification; it is sent after this transaction commits
+        if (patientEmail != null && !patientEmail.trim().isEmpty()) {
+            emailOutboxService.enqueue(EmailOutbox.EmailType.OTP_TEST_TYPE, patientEmail, patientName,
+                    Map.of("otp", otp, "testType", testType));
+        } else {
+            log.warn("Patient email is null or empty for patient: {}, Test type OTP sent via notification only", patientId);
         }
         
         log.info("=== Test Type OTP Email Notification Completed ===");
         log.info("OTP {} sent to patient {} for test type {} via notification system", otp, patientId, testType);
     }
 
-    private NotificationDto convertToDto(Notification notification) {
-        NotificationDto dto = new NotificationDto();
-        dto.setNotificationId(notification.getNotificationId());
-        dto.setRecipientId(notification.getRecipientId());
-        dto.setRecipientType(notification.getRecipientType());
-        dto.setTitle(notification.getTitle());
-        dto.setMessage(notification.getMessage());
-        dto.setType(notification.getType().name());
-        dto.setIsRead(notification.getIsRead());
-        dto.setRelatedEntityId(notification.getRelatedEntityId());
-        dto.setRelatedEntityType(notification.getRelatedEntityType());
-        dto.setCreatedAt(notification.getCreatedAt());
-        dto.setReadAt(notification.getReadAt());
-        dto.setCreatedBy(notification.getCreatedBy());
-        return dto;
+    private static Notification newNotification(String recipientId, String recipientType, String title,
+                                                String message, Notification.NotificationType type,
+                                                String relatedEntityId, String relatedEntityType, String createdBy) {
+        Notification notification = new Notification();
+        notification.setRecipientId(recipientId);
+        notification.setRecipientType(recipientType);
+        notification.setTitle(title);
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setRelatedEntityId(relatedEntityId);
+        notification.setRelatedEntityType(relatedEntityType);
+        notification.setCreatedBy(createdBy);
+        return notification;
     }
 }
@@ -0,0 +1,246 @@
+package com.pulseiq.service;
+
+import com.pulseiq.dto.NotificationDto;
+import com.pulseiq.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes notifications and unread-count changes to open {@code /api/notifications/stream}
+ * connections. Connections are async servlet requests, so an idle one holds no thread.
+ * <p>
+ * A change is only announced once the transaction that makes it commits. With
+ * {@code app.notifications.fanout=postgres} it is announced with {@code pg_notify} on a pooled
+ * connection of its own, so a failing announcement cannot abort the caller's transaction, and
+ * every replica LISTENs and pushes to its own connections. With {@code local} the change is pushed
+ * on this node only.
+ */
+@Slf4j
+@Service
+public class NotificationStreamService {
+
+    static final String CHANNEL = "pulseiq_notifications";
+
+    private static final int MAX_STREAMS_PER_RECIPIENT = 5;
+    private static final long HEARTBEAT_SECONDS = 25;
+    private static final int LISTEN_POLL_MILLIS = 10_000;
+    private static final long LISTEN_RETRY_MILLIS = 5_000;
+
+    private final NotificationRepository notificationRepository;
+    private final UnreadNotificationCounter unreadNotificationCounter;
+    private final boolean postgresFanout;
+    private final long streamTimeoutMillis;
+    private final String datasourceUrl;
+    private final String datasourceUsername;
+    private final String datasourcePassword;
+
+    private final Map<String, List<SseEmitter>> streams = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat;
+    private final ThreadPoolExecutor pusher;
+    private volatile boolean running = true;
+
+    public NotificationStreamService(NotificationRepository notificationRepository,
+                                     UnreadNotificationCounter unreadNotificationCounter,
+                                     @Value("${app.notifications.fanout:local}") String fanout,
+                                     @Value("${app.notifications.stream-timeout-ms:1800000}") long streamTimeoutMillis,
+                                     @Value("${spring.datasource.url:}") String datasourceUrl,
+                                     @Value("${spring.datasource.username:}") String datasourceUsername,
+                                     @Value("${spring.datasource.password:}") String datasourcePassword) {
+        this.notificationRepository = notificationRepository;
+        this.unreadNotificationCounter = unreadNotificationCounter;
+        this.postgresFanout = "postgres".equalsIgnoreCase(fanout);
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.datasourceUrl = datasourceUrl;
+        this.datasourceUsername = datasourceUsername;
+        this.datasourcePassword = datasourcePassword;
+
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "notification-stream-heartbeat"));
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        // Pushes run off the listener thread so a slow client cannot hold up other deliveries
+        this.pusher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10_000),
+                runnable -> daemon(runnable, "notification-stream-push"),
+                (runnable, pool) -> log.warn("Notification stream queue is full, dropping an update"));
+
+        if (postgresFanout) {
+            daemon(this::listen, "notification-stream-listener").start();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        heartbeat.shutdownNow();
+        pusher.shutdownNow();
+        streams.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    /**
+     * Open a stream for the recipient. The current unread count is sent right away.
+     */
+    public SseEmitter subscribe(String recipientId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        List<SseEmitter> emitters = streams.computeIfAbsent(recipientId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        // A client that keeps reconnecting without closing loses its oldest streams
+        while (emitters.size() > MAX_STREAMS_PER_RECIPIENT) {
+            emitters.remove(0).complete();
+        }
+        Runnable remove = () -> removeStream(recipientId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        send(recipientId, emitter, "unread-count", Map.of("count", unreadNotificationCounter.get(recipientId)));
+        return emitter;
+    }
+
+    /**
+     * Announce a change for the recipient once the current transaction commits: a new
+     * notification, or only a changed unread count when {@code notificationId} is null.
+     */
+    public void publish(String recipientId, Long notificationId) {
+        String payload = recipientId + "|" + (notificationId != null ? notificationId : "");
+        Runnable announce = postgresFanout
+                ? () -> pusher.execute(() -> announce(payload))
+                : () -> pusher.execute(() -> deliver(payload));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    announce.run();
+                }
+            });
+        } else {
+            announce.run();
+        }
+    }
+
+    // Runs on the pusher thread without a transaction, so the NOTIFY commits on its own
+    private void announce(String payload) {
+        try {
+            notificationRepository.notifyChannel(CHANNEL, payload);
+        } catch (Exception e) {
+            log.warn("Could not announce notification change {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void deliver(String payload) {
+        int separator = payload.lastIndexOf('|');
+        if (separator < 0) {
+            return;
+        }
+        String recipientId = payload.substring(0, separator);
+        List<SseEmitter> emitters = streams.get(recipientId);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        try {
+            if (separator < payload.length() - 1) {
+                Long notificationId = Long.valueOf(payload.substring(separator + 1));
+                notificationRepository.findById(notificationId)
+                        .map(NotificationDto::from)
+                        .ifPresent(notification -> emitters.forEach(
+                                emitter -> send(recipientId, emitter, "notification", notification)));
+            }
+            Map<String, Long> count = Map.of("count", unreadNotificationCounter.get(recipientId));
+            emitters.forEach(emitter -> send(recipientId, emitter, "unread-count", count));
+        } catch (Exception e) {
+            log.warn("Could not push notification update to {}: {}", recipientId, e.getMessage());
+        }
+    }
+
+    private void send(String recipientId, SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            removeStream(recipientId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void sendHeartbeats() {
+        streams.forEach((recipientId, emitters) -> emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+            } catch (IOException | IllegalStateException e) {
+                removeStream(recipientId, emitter);
+                emitter.completeWithError(e);
+            }
+        }));
+    }
+
+    private void removeStream(String recipientId, SseEmitter emitter) {
+        streams.computeIfPresent(recipientId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    /**
+     * LISTEN on a dedicated connection (not one from the pool) and hand every announcement to
+     * the pusher. The driver is only on the runtime classpath, so its notification API is
+     * reached by reflection.
+     */
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(datasourceUrl, datasourceUsername, datasourcePassword)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection");
+                Method getNotifications = pgConnectionClass.getMethod("getNotifications", int.class);
+                Method getParameter = Class.forName("org.postgresql.PGNotification").getMethod("getParameter");
+                Object pgConnection = connection.unwrap(pgConnectionClass);
+                log.info("Listening for notification changes on channel {}", CHANNEL);
+
+                while (running) {
+                    Object[] notifications = (Object[]) getNotifications.invoke(pgConnection, LISTEN_POLL_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (Object notification : notifications) {
+                        String payload = (String) getParameter.invoke(notification);
+                        pusher.execute(() -> deliver(payload));
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Notification listener connection failed, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(LISTEN_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,252 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.entity.Notification;
+import com.pulseiq.entity.NotificationOutbox;
+import com.pulseiq.repository.NotificationOutboxRepository;
+import com.pulseiq.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes notifications in the background so request latency does not include them. The
+ * notifications a transaction queues are recorded as one {@link NotificationOutbox} row in that
+ * transaction, so they are kept exactly when it commits. After the commit the row is handed to a
+ * flusher, which turns the rows into notifications in JDBC batches once
+ * {@code app.notifications.write-behind.batch-size} have collected or {@code flush-interval-ms}
+ * after the first one, whichever comes first.
+ * <p>
+ * A row whose write failed, that did not fit in the queue, or that was left by a crash is picked
+ * up again from the table every {@code recovery-interval-ms}, by whichever node gets to it first.
+ */
+@Slf4j
+@Component
+public class NotificationWriteBehind {
+
+    // Younger rows are normally still on their way through a node's queue
+    private static final Duration STRANDED_AFTER = Duration.ofSeconds(30);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final UnreadNotificationCounter unreadNotificationCounter;
+    private final NotificationStreamService notificationStreamService;
+    private final NotificationDigestService notificationDigestService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long recoveryIntervalNanos;
+    private final BlockingQueue<Long> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public NotificationWriteBehind(NotificationRepository notificationRepository,
+                                   NotificationOutboxRepository notificationOutboxRepository,
+                                   UnreadNotificationCounter unreadNotificationCounter,
+                                   NotificationStreamService notificationStreamService,
+                                   NotificationDigestService notificationDigestService,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.notifications.write-behind.batch-size:100}") int batchSize,
+                                   @Value("${app.notifications.write-behind.flush-interval-ms:5}") long flushIntervalMillis,
+                                   @Value("${app.notifications.write-behind.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${app.notifications.write-behind.recovery-interval-ms:30000}") long recoveryIntervalMillis) {
+        this.notificationRepository = notificationRepository;
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.unreadNotificationCounter = unreadNotificationCounter;
+        this.notificationStreamService = notificationStreamService;
+        this.notificationDigestService = notificationDigestService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.recoveryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(recoveryIntervalMillis);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.flusher = new Thread(this::run, "notification-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        // Anything not written here stays in the outbox for the next start or another node
+        List<Long> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+    }
+
+    /**
+     * Queue a notification. Inside a transaction it is recorded in the outbox when the transaction
+     * commits, together with the others it queued; without one it is recorded right away.
+     */
+    public void enqueue(Notification notification) {
+        notification.setIsRead(false);
+        notification.setCreatedAt(LocalDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(transactionTemplate.execute(status -> record(List.of(notification))));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingOutboxRow pending) {
+                pending.notifications.add(notification);
+                return;
+            }
+        }
+        PendingOutboxRow pending = new PendingOutboxRow();
+        pending.notifications.add(notification);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    int pending() {
+        return queue.size();
+    }
+
+    private Long record(List<Notification> notifications) {
+        NotificationOutbox row = new NotificationOutbox();
+        try {
+            row.setPayload(objectMapper.writeValueAsString(notifications));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to queue notifications: " + e.getMessage());
+        }
+        row.setCreatedAt(LocalDateTime.now());
+        return notificationOutboxRepository.save(row).getOutboxId();
+    }
+
+    private void offer(Long outboxId) {
+        if (outboxId != null && !queue.offer(outboxId)) {
+            log.warn("Notification write-behind queue is full, outbox row {} is written by the next recovery pass", outboxId);
+        }
+    }
+
+    private void run() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        long nextRecovery = System.nanoTime();
+        while (running) {
+            try {
+                if (System.nanoTime() - nextRecovery >= 0) {
+                    recoverStranded();
+                    nextRecovery = System.nanoTime() + recoveryIntervalNanos;
+                }
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Long next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown; whatever was taken is written below and the rest by shutdown()
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Long> outboxIds) {
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> write(notificationOutboxRepository.findByIdsForUpdate(outboxIds)));
+        } catch (RuntimeException e) {
+            log.warn("Writing {} queued notification batches failed, they are retried from the outbox: {}",
+                    outboxIds.size(), e.getMessage());
+        }
+    }
+
+    private void recoverStranded() {
+        try {
+            Integer written;
+            do {
+                written = transactionTemplate.execute(status -> {
+                    List<NotificationOutbox> rows = notificationOutboxRepository.findStrandedForUpdate(
+                            LocalDateTime.now().minus(STRANDED_AFTER), PageRequest.of(0, batchSize));
+                    write(rows);
+                    return rows.size();
+                });
+                if (written != null && written > 0) {
+                    log.info("Recovered {} queued notification batches from the outbox", written);
+                }
+            } while (written != null && written == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Recovering queued notifications from the outbox failed: {}", e.getMessage());
+        }
+    }
+
+    // Runs inside the caller's transaction, which holds the rows' locks
+    private void write(List<NotificationOutbox> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Notification> notifications = new ArrayList<>();
+        List<NotificationOutbox> written = new ArrayList<>(rows.size());
+        for (NotificationOutbox row : rows) {
+            try {
+                notifications.addAll(objectMapper.readValue(row.getPayload(), new TypeReference<List<Notification>>() {}));
+                written.add(row);
+            } catch (JsonProcessingException e) {
+                // Left in place for inspection
+                log.error("Unreadable notification outbox row {}: {}", row.getOutboxId(), e.getMessage());
+            }
+        }
+        for (Notification saved : notificationRepository.saveAll(notifications)) {
+            unreadNotificationCounter.adjustAfterCommit(saved.getRecipientId(), 1);
+            notificationStreamService.publish(saved.getRecipientId(), saved.getNotificationId());
+            notificationDigestService.addAfterCommit(saved);
+        }
+        notificationOutboxRepository.deleteAllInBatch(written);
+        log.debug("Wrote {} queued notifications", notifications.size());
+    }
+
+    /**
+     * The notifications one transaction has queued, recorded as a single outbox row when it commits.
+     */
+    private final class PendingOutboxRow implements TransactionSynchronization {
+
+        private final List<Notification> notifications = new ArrayList<>();
+        private Long outboxId;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            outboxId = record(notifications);
+        }
+
+        @Override
+        public void afterCommit() {
+            offer(outboxId);
+        }
+    }
+}
@@ -1,15 +1,16 @@
 package com.pulseiq.service;
 
 import java.security.SecureRandom;
-import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.pulseiq.entity.Patient;
 import com.pulseiq.entity.User;
+import com.pulseiq.otp.OtpEntry;
+import com.pulseiq.otp.OtpHasher;
+import com.pulseiq.otp.OtpStore;
 import com.pulseiq.repository.PatientRepository;
 import com.pulseiq.repository.UserRepository;
 
@@ -21,42 +22,16 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PatientOtpService {
     
+    static final Duration OTP_VALIDITY = Duration.ofMinutes(10);
+    
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     
-    // In-memory OTP storage (in production, use Redis or database)
-    private final Map<String, OtpData> otpStorage = new ConcurrentHashMap<>();
+    private final OtpStore otpStore;
+    private final OtpHasher otpHasher;
     private final SecureRandom secureRandom = new SecureRandom();
     
-    private static class OtpData {
-        private final String otp;
-        private final LocalDateTime expiryTime;
-        private final String doctorId;
-        private final String patientId;
-        private final String testType; // Added test type
-        
-        public OtpData(String otp, LocalDateTime expiryTime, String doctorId, String patientId, String testType) {
-            this.otp = otp;
-            this.expiryTime = expiryTime;
-            this.doctorId = doctorId;
-            this.patientId = patientId;
-            this.testType = testType;
-        }
-        
-        public boolean isExpired() {
-            return LocalDateTime.now().isAfter(expiryTime);
-        }
-        
-        public boolean isValid(String inputOtp, String requestingDoctorId, String requestedTestType) {
-            return !isExpired() && otp.equals(inputOtp) && doctorId.equals(requestingDoctorId) && testType.equals(requestedTestType);
-        }
-        
-        public String getTestType() {
-            return testType;
-        }
-    }
-    
     /**
      * Generate and send OTP to patient for test result access
      */
@@ -76,12 +51,9 @@ public class PatientOtpService {
             String otp = String.format("%06d", secureRandom.nextInt(1000000));
             log.info("OTP generated: {}", otp);
             
-            // Set expiry time (10 minutes from now)
-            LocalDateTime expiryTime = LocalDateTime.now().plusMinutes(10);
-            
-            // Store OTP
+            // Store OTP, valid for 10 minutes
             String otpKey = generateOtpKey(patientId, doctorId);
-            otpStorage.put(otpKey, new OtpData(otp, expiryTime, doctorId, patientId, "ALL"));
+            otpStore.put(otpKey, OtpEntry.issue(otpHasher, otp, patientId, doctorId, "ALL", OTP_VALIDITY));
             log.info("OTP stored with key: {}", otpKey);
             
             // Send OTP to patient's email
@@ -119,14 +91,7 @@ public class PatientOtpService {
     public boolean verifyOtp(String patientId, String doctorId, String inputOtp) {
         try {
             String otpKey = generateOtpKey(patientId, doctorId);
-            OtpData otpData = otpStorage.get(otpKey);
-            
-            if (otpData == null) {
-                log.warn("No OTP found for patient {} and doctor {}", patientId, doctorId);
-                return false;
-            }
-            
-            boolean isValid = otpData.isValid(inputOtp, doctorId, "ALL");
+            boolean isValid = otpStore.matches(otpKey, inputOtp, doctorId, "ALL");
             
             if (isValid) {
                 // Don't remove OTP after verification - keep it for download
@@ -149,18 +114,10 @@ public class PatientOtpService {
     public boolean verifyOtpForDownload(String patientId, String doctorId, String inputOtp) {
         try {
             String otpKey = generateOtpKey(patientId, doctorId);
-            OtpData otpData = otpStorage.get(otpKey);
-            
-            if (otpData == null) {
-                log.warn("No OTP found for download - patient {} and doctor {}", patientId, doctorId);
-                return false;
-            }
-            
-            boolean isValid = otpData.isValid(inputOtp, doctorId, "ALL");
+            // Remove OTP after successful download verification; only one request can consume it
+            boolean isValid = otpStore.consume(otpKey, inputOtp, doctorId, "ALL");
             
             if (isValid) {
-                // Remove OTP after successful download verification
-                otpStorage.remove(otpKey);
                 log.info("OTP verified successfully for download - patient {} and doctor {}", patientId, doctorId);
             } else {
                 log.warn("Invalid or expired OTP for download - patient {} and doctor {}", patientId, doctorId);
@@ -174,14 +131,6 @@ public class PatientOtpService {
         }
     }
     
-    /**
-     * Clean up expired OTPs (should be called periodically)
-     */
-    public void cleanupExpiredOtps() {
-        otpStorage.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        log.debug("Cleaned up expired OTPs. Remaining: {}", otpStorage.size());
-    }
-    
     private String generateOtpKey(String patientId, String doctorId) {
         return patientId + "_" + doctorId;
     }
@@ -209,12 +158,9 @@ public class PatientOtpService {
             String otp = String.format("%06d", secureRandom.nextInt(1000000));
             log.info("OTP generated: {}", otp);
             
-            // Set expiry time (10 minutes from now)
-            LocalDateTime expiryTime = LocalDateTime.now().plusMinutes(10);
-            
-            // Store OTP with test type
+            // Store OTP with test type, valid for 10 minutes
             String otpKey = generateOtpKeyWithTestType(patientId, doctorId, testType);
-            otpStorage.put(otpKey, new OtpData(otp, expiryTime, doctorId, patientId, testType));
+            otpStore.put(otpKey, OtpEntry.issue(otpHasher, otp, patientId, doctorId, testType, OTP_VALIDITY));
             log.info("OTP stored with key: {}", otpKey);
             
             // Send OTP to patient's email
@@ -253,18 +199,10 @@ public class PatientOtpService {
     public boolean verifyOtpForTestType(String patientId, String doctorId, String testType, String inputOtp) {
         try {
             String otpKey = generateOtpKeyWithTestType(patientId, doctorId, testType);
-            OtpData otpData = otpStorage.get(otpKey);
-            
-            if (otpData == null) {
-                log.warn("No OTP found for patient {}, doctor {} and test type {}", patientId, doctorId, testType);
-                return false;
-            }
-            
-            boolean isValid = otpData.isValid(inputOtp, doctorId, testType);
+            // Remove OTP after successful verification for test type access; only one request can consume it
+            boolean isValid = otpStore.consume(otpKey, inputOtp, doctorId, testType);
             
             if (isValid) {
-                // Remove OTP after successful verification for test type access
-                otpStorage.remove(otpKey);
                 log.info("OTP verified successfully for patient {}, doctor {} and test type {}", patientId, doctorId, testType);
             } else {
                 log.warn("Invalid or expired OTP for patient {}, doctor {} and test type {}", patientId, doctorId, testType);
@@ -284,7 +222,7 @@ public class PatientOtpService {
     public void cancelOtpForTestType(String patientId, String doctorId, String testType) {
         try {
             String otpKey = generateOtpKeyWithTestType(patientId, doctorId, testType);
-            otpStorage.remove(otpKey);
+            otpStore.remove(otpKey);
             log.info("OTP cancelled for patient {}, doctor {} and test type {}", patientId, doctorId, testType);
         } catch (Exception e) {
             log.error("Error cancelling OTP for patient {}, doctor {} and test type {}", patientId, doctorId, testType, e);
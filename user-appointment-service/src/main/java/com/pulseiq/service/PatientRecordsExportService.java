@@ -0,0 +1,178 @@
+package com.pulseiq.service;
+
+import com.pulseiq.dto.PrescriptionDto;
+import com.pulseiq.repository.TestResultRepository;
+import com.pulseiq.storage.BlobStorageService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds a ZIP of every prescription PDF and test-result PDF of a patient. Documents are loaded
+ * or rendered in parallel, but only a fixed window of them is in flight at once and each is
+ * written to the ZIP as soon as it is ready, so memory use does not grow with the record count.
+ * Documents that cannot be loaded are listed in a {@value #MISSING_ENTRY} entry instead, so an
+ * incomplete archive says so.
+ */
+@Slf4j
+@Service
+public class PatientRecordsExportService {
+
+    static final String MISSING_ENTRY = "MISSING.txt";
+
+    private final PrescriptionService prescriptionService;
+    private final PrescriptionPdfCache prescriptionPdfCache;
+    private final TestResultRepository testResultRepository;
+    private final BlobStorageService blobStorageService;
+    private final ExecutorService executor;
+    private final int window;
+
+    public PatientRecordsExportService(PrescriptionService prescriptionService,
+                                       PrescriptionPdfCache prescriptionPdfCache,
+                                       TestResultRepository testResultRepository,
+                                       BlobStorageService blobStorageService,
+                                       @Value("${app.records-export.threads:4}") int threads) {
+        this.prescriptionService = prescriptionService;
+        this.prescriptionPdfCache = prescriptionPdfCache;
+        this.testResultRepository = testResultRepository;
+        this.blobStorageService = blobStorageService;
+        this.window = threads;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "records-export-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Write the patient's documents as a ZIP into {@code outputStream}. The stream is finished
+     * but not closed.
+     */
+    public void exportPatientRecords(String patientId, OutputStream outputStream) throws IOException {
+        List<Callable<ExportedDocument>> tasks = new ArrayList<>();
+
+        for (PrescriptionDto prescription : prescriptionService.getPrescriptionsByPatient(patientId)) {
+            tasks.add(describeFailure("prescription " + prescription.getPrescriptionId(), () -> {
+                int sequenceNumber = prescriptionService.getPrescriptionSequenceNumber(prescription);
+                byte[] pdf = prescriptionPdfCache.getPdf(prescription, sequenceNumber);
+                return new ExportedDocument("prescriptions/prescription_" + sequenceNumber + ".pdf", pdf, null);
+            }));
+        }
+        for (Object[] entry : testResultRepository.findExportEntriesByPatientId(patientId)) {
+            Long testId = (Long) entry[0];
+            String name = "test-results/" + testId + "_" + safeFileName((String) entry[1]);
+            String blobRef = (String) entry[2];
+            tasks.add(describeFailure(name, () -> new ExportedDocument(name, readTestResultPdf(testId, blobRef), null)));
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        // PDFs are already compressed; don't spend CPU trying again
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        CompletionService<ExportedDocument> completion = new ExecutorCompletionService<>(executor);
+        List<Future<ExportedDocument>> submitted = new ArrayList<>();
+        Iterator<Callable<ExportedDocument>> pending = tasks.iterator();
+        List<String> missing = new ArrayList<>();
+        int inFlight = 0;
+        try {
+            while (inFlight < window && pending.hasNext()) {
+                submitted.add(completion.submit(pending.next()));
+                inFlight++;
+            }
+            while (inFlight > 0) {
+                ExportedDocument document = takeNext(completion);
+                inFlight--;
+                if (pending.hasNext()) {
+                    submitted.add(completion.submit(pending.next()));
+                    inFlight++;
+                }
+                if (document.content() == null) {
+                    missing.add(document.name() + ": " + (document.failure() != null ? document.failure() : "no content"));
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(document.name()));
+                zip.write(document.content());
+                zip.closeEntry();
+            }
+        } finally {
+            // Client went away or a write failed: stop the rest of the export
+            submitted.forEach(future -> future.cancel(true));
+        }
+        if (!missing.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(MISSING_ENTRY));
+            zip.write(("These documents could not be exported:\n" + String.join("\n", missing) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            log.warn("Records export for patient {} left out {} of {} documents", patientId, missing.size(), tasks.size());
+        }
+        zip.finish();
+        zip.flush();
+        log.info("Exported {} documents for patient {}", tasks.size() - missing.size(), patientId);
+    }
+
+    // A failed document comes back without content, so the export can say which one is missing
+    private static Callable<ExportedDocument> describeFailure(String name, Callable<ExportedDocument> task) {
+        return () -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                log.warn("Could not export {}: {}", name, e.getMessage());
+                return new ExportedDocument(name, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        };
+    }
+
+    private ExportedDocument takeNext(CompletionService<ExportedDocument> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            // Task failures are caught in describeFailure; anything else is not a per-document problem
+            throw new IOException("Records export failed", e.getCause());
+        }
+    }
+
+    private byte[] readTestResultPdf(Long testId, String blobRef) throws IOException {
+        if (blobRef == null) {
+            return testResultRepository.findLegacyPdfData(testId);
+        }
+        try (InputStream content = blobStorageService.open(blobRef)) {
+            return content.readAllBytes();
+        }
+    }
+
+    private static String safeFileName(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            return "report.pdf";
+        }
+        return fileName.replaceAll("[\\\\/:*?\"<>|]", "_");
+    }
+
+    private record ExportedDocument(String name, byte[] content, String failure) {
+    }
+}
@@ -0,0 +1,419 @@
+package com.pulseiq.service;
+
+import com.pulseiq.dto.PrescriptionDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of rendered prescription PDFs: a small in-memory LRU in front of a
+ * size-bounded directory on disk. Entries are keyed by prescription ID, {@code updatedAt},
+ * sequence number and template version, so an edited prescription or a new template simply
+ * misses and older renders of the same prescription are dropped when the new one is stored.
+ */
+@Slf4j
+@Service
+public class PrescriptionPdfCache {
+
+    private final PrescriptionPdfService pdfService;
+    private final Path cacheDir;
+    private final long maxDiskBytes;
+    private final long maxMemoryBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    // Pre-renders for new prescriptions; when it falls behind the first download renders instead
+    private final ThreadPoolExecutor prewarmExecutor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+            runnable -> {
+                Thread thread = new Thread(runnable, "prescription-pdf-prewarm");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    public PrescriptionPdfCache(PrescriptionPdfService pdfService,
+                                @Value("${app.prescription-pdf.cache-dir:${java.io.tmpdir}/pulseiq/prescription-pdf}") String cacheDir,
+                                @Value("${app.prescription-pdf.cache-max-disk-bytes:268435456}") long maxDiskBytes,
+                                @Value("${app.prescription-pdf.cache-max-memory-bytes:16777216}") long maxMemoryBytes) {
+        this.pdfService = pdfService;
+        this.cacheDir = Paths.get(cacheDir);
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    @PostConstruct
+    void init() {
+        long total = 0;
+        try {
+            Files.createDirectories(cacheDir);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, "*.pdf")) {
+                for (Path file : files) {
+                    total += Files.size(file);
+                }
+            }
+        } catch (IOException e) {
+            // Downloads still work, they just render every time
+            log.warn("Prescription PDF cache directory {} is not usable: {}", cacheDir, e.getMessage());
+            return;
+        }
+        diskBytes.set(total);
+        log.info("Prescription PDF cache at {} holds {} bytes", cacheDir, total);
+        evictDiskIfNeeded();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prewarmExecutor.shutdownNow();
+    }
+
+    /**
+     * Return the rendered PDF, rendering it at most once per key even under concurrent requests.
+     */
+    public byte[] getPdf(PrescriptionDto prescription, int sequenceNumber) throws Exception {
+        String key = cacheKey(prescription, sequenceNumber);
+
+        while (true) {
+            byte[] cached = getCached(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            CompletableFuture<byte[]> render = new CompletableFuture<>();
+            CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, render);
+            if (existing != null) {
+                byte[] pdf = await(existing);
+                if (pdf != null) {
+                    return pdf;
+                }
+                // A pooled render that failed or could not be cached; render here instead
+                continue;
+            }
+            try {
+                byte[] pdf = pdfService.generatePrescriptionPdf(prescription, sequenceNumber);
+                store(prescription.getPrescriptionId(), key, pdf);
+                render.complete(pdf);
+                return pdf;
+            } catch (Exception e) {
+                render.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, render);
+            }
+        }
+    }
+
+    /**
+     * Return the cached PDF, or null when it has not been rendered yet.
+     */
+    public byte[] getCached(PrescriptionDto prescription, int sequenceNumber) {
+        return getCached(cacheKey(prescription, sequenceNumber));
+    }
+
+    /**
+     * Claim the render of a PDF that is not cached, for a render on the renderer pool to write
+     * into. Returns null when another request is already rendering it; {@link #findInFlight}
+     * returns that render. Until the entry is committed or discarded, {@link #getPdf} callers
+     * for the same key wait for it. The entry only becomes visible on {@link PendingEntry#commit()}.
+     */
+    public PendingEntry claimEntry(PrescriptionDto prescription, int sequenceNumber) {
+        String key = cacheKey(prescription, sequenceNumber);
+        CompletableFuture<byte[]> render = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, render) != null) {
+            return null;
+        }
+        if (getCached(key) != null) {
+            // Rendered between the caller's cache check and the claim
+            inFlight.remove(key, render);
+            render.complete(null);
+            return null;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(cacheDir, key, ".tmp");
+            return new PendingEntry(prescription.getPrescriptionId(), key, temp, Files.newOutputStream(temp), render);
+        } catch (IOException e) {
+            // Still rendered once, just not cached
+            log.warn("Could not open cache entry for prescription PDF {}: {}", key, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Left for the next cleanup of the cache directory
+                }
+            }
+            return new PendingEntry(prescription.getPrescriptionId(), key, null, OutputStream.nullOutputStream(), render);
+        }
+    }
+
+    /**
+     * The render another request has claimed for this PDF, or null when none is running. It
+     * completes with null when that render fails or could not be cached.
+     */
+    public CompletableFuture<byte[]> findInFlight(PrescriptionDto prescription, int sequenceNumber) {
+        return inFlight.get(cacheKey(prescription, sequenceNumber));
+    }
+
+    /**
+     * Queue a background render so the first download of a new prescription is a cache hit.
+     * Call after the prescription has been committed.
+     */
+    public void prewarm(PrescriptionDto prescription, int sequenceNumber) {
+        prewarmExecutor.execute(() -> {
+            try {
+                getPdf(prescription, sequenceNumber);
+            } catch (Exception e) {
+                log.warn("Pre-rendering prescription {} failed: {}", prescription.getPrescriptionId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drop every cached render of a prescription.
+     */
+    public void evict(Long prescriptionId) {
+        String prefix = prescriptionId + "-";
+        synchronized (memory) {
+            Iterator<Map.Entry<String, byte[]>> entries = memory.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    memoryBytes -= entry.getValue().length;
+                    entries.remove();
+                }
+            }
+        }
+        deleteDiskEntries(prefix, null);
+    }
+
+    static String cacheKey(PrescriptionDto prescription, int sequenceNumber) {
+        // Millisecond precision: PostgreSQL keeps microseconds, the freshly created entity may hold nanos
+        long updatedAt = prescription.getUpdatedAt() != null
+                ? prescription.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+        return prescription.getPrescriptionId() + "-" + updatedAt + "-" + sequenceNumber
+                + "-v" + PrescriptionPdfService.TEMPLATE_VERSION;
+    }
+
+    private void store(Long prescriptionId, String key, byte[] pdf) {
+        putInMemory(key, pdf);
+        try {
+            Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.write(temp, pdf);
+            commitFile(prescriptionId, key, temp);
+        } catch (IOException e) {
+            log.warn("Could not write prescription PDF {} to cache: {}", key, e.getMessage());
+        }
+    }
+
+    private void commitFile(Long prescriptionId, String key, Path temp) throws IOException {
+        Path target = cacheDir.resolve(key + ".pdf");
+        long replaced = Files.exists(target) ? Files.size(target) : 0L;
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        diskBytes.addAndGet(Files.size(target) - replaced);
+        // Older renders of this prescription can never be requested again
+        deleteDiskEntries(prescriptionId + "-", key + ".pdf");
+        evictDiskIfNeeded();
+    }
+
+    private byte[] getCached(String key) {
+        byte[] cached = getFromMemory(key);
+        if (cached == null) {
+            cached = readFromDisk(key);
+            if (cached != null) {
+                putInMemory(key, cached);
+            }
+        }
+        return cached;
+    }
+
+    private byte[] getFromMemory(String key) {
+        synchronized (memory) {
+            return memory.get(key);
+        }
+    }
+
+    private void putInMemory(String key, byte[] pdf) {
+        if (pdf.length > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            byte[] previous = memory.put(key, pdf);
+            memoryBytes += pdf.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private byte[] readFromDisk(String key) {
+        Path file = cacheDir.resolve(key + ".pdf");
+        try {
+            byte[] pdf = Files.readAllBytes(file);
+            // Modification time doubles as last-access time for disk eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return pdf;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void deleteDiskEntries(String prefix, String keepFileName) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, prefix + "*.pdf")) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().equals(keepFileName)) {
+                    deleteFile(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean cached PDFs with prefix {}: {}", prefix, e.getMessage());
+        }
+    }
+
+    private synchronized void evictDiskIfNeeded() {
+        if (diskBytes.get() <= maxDiskBytes) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, "*.pdf")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Could not list prescription PDF cache: {}", e.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparingLong(PrescriptionPdfCache::lastModified));
+        for (Path file : files) {
+            if (diskBytes.get() <= maxDiskBytes) {
+                break;
+            }
+            deleteFile(file);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            // Already gone or concurrently replaced
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> render) throws Exception {
+        try {
+            return render.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * A cache file being written by a render on the renderer pool. Committing or discarding it releases
+     * requests waiting for the same PDF.
+     */
+    public final class PendingEntry {
+
+        private final Long prescriptionId;
+        private final String key;
+        private final Path temp;
+        private final OutputStream outputStream;
+        private final CompletableFuture<byte[]> render;
+
+        private PendingEntry(Long prescriptionId, String key, Path temp, OutputStream outputStream,
+                             CompletableFuture<byte[]> render) {
+            this.prescriptionId = prescriptionId;
+            this.key = key;
+            this.temp = temp;
+            this.outputStream = outputStream;
+            this.render = render;
+        }
+
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        public void commit() {
+            byte[] pdf = null;
+            try {
+                outputStream.close();
+                if (temp != null) {
+                    commitFile(prescriptionId, key, temp);
+                    pdf = getCached(key);
+                }
+            } catch (IOException e) {
+                log.warn("Could not store rendered prescription PDF {}: {}", key, e.getMessage());
+                deleteTemp();
+            }
+            release(pdf);
+        }
+
+        public void discard() {
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                // Nothing to flush for a discarded entry
+            }
+            deleteTemp();
+            release(null);
+        }
+
+        private void deleteTemp() {
+            if (temp == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Could not delete temporary cache file {}: {}", temp, e.getMessage());
+            }
+        }
+
+        // Removed first, so a waiter that gets null and retries cannot find this render again
+        private void release(byte[] pdf) {
+            inFlight.remove(key, render);
+            render.complete(pdf);
+        }
+    }
+}
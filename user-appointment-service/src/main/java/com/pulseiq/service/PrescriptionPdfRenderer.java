@@ -0,0 +1,136 @@
+package com.pulseiq.service;
+
+import com.pulseiq.dto.PrescriptionDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool that renders prescription PDFs into memory and the PDF cache. Requests do not hold
+ * a thread while their PDF is queued or rendered; when all renderers are busy and the queue is
+ * full new renders are rejected, so a burst is turned away instead of piling up anywhere.
+ */
+@Service
+public class PrescriptionPdfRenderer {
+
+    private final PrescriptionPdfService pdfService;
+    private final PrescriptionPdfCache pdfCache;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer renderTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PrescriptionPdfRenderer(PrescriptionPdfService pdfService,
+                                   PrescriptionPdfCache pdfCache,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.prescription-pdf.renderer-threads:4}") int threads,
+                                   @Value("${app.prescription-pdf.renderer-queue-capacity:32}") int queueCapacity) {
+        this.pdfService = pdfService;
+        this.pdfCache = pdfCache;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "prescription-pdf-renderer-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("prescription.pdf.render.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Prescription PDF renders waiting for a renderer")
+                .register(meterRegistry);
+        Gauge.builder("prescription.pdf.render.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Prescription PDF renders in progress")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("prescription.pdf.render.time")
+                .description("Time spent rendering a prescription PDF")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("prescription.pdf.render.queue.wait")
+                .description("Time a prescription PDF render waited for a renderer")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("prescription.pdf.render.rejected")
+                .description("Prescription PDF renders rejected because the renderer queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * The PDF, rendered on the renderer pool unless it is cached or another request is already
+     * rendering it, in which case that render is shared. The calling thread never waits: the PDF is
+     * rendered into memory and the caller writes it to the client once the future completes, so a
+     * slow client does not hold a renderer.
+     *
+     * @throws RejectedExecutionException when the renderer queue is full
+     */
+    public CompletableFuture<byte[]> renderPdf(PrescriptionDto prescription, int sequenceNumber) {
+        while (true) {
+            byte[] cached = pdfCache.getCached(prescription, sequenceNumber);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            PrescriptionPdfCache.PendingEntry entry = pdfCache.claimEntry(prescription, sequenceNumber);
+            if (entry != null) {
+                return submit(prescription, sequenceNumber, entry);
+            }
+            CompletableFuture<byte[]> inFlight = pdfCache.findInFlight(prescription, sequenceNumber);
+            if (inFlight != null) {
+                // Completes with null when that render failed; render again then
+                return inFlight.thenCompose(pdf -> pdf != null
+                        ? CompletableFuture.completedFuture(pdf)
+                        : renderPdf(prescription, sequenceNumber));
+            }
+            // That render finished between the claim and the lookup
+        }
+    }
+
+    private CompletableFuture<byte[]> submit(PrescriptionDto prescription, int sequenceNumber,
+                                             PrescriptionPdfCache.PendingEntry entry) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    result.complete(renderTimer.recordCallable(() -> render(prescription, sequenceNumber, entry)));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            entry.discard();
+            throw e;
+        }
+        return result;
+    }
+
+    private byte[] render(PrescriptionDto prescription, int sequenceNumber,
+                          PrescriptionPdfCache.PendingEntry entry) throws Exception {
+        byte[] pdf;
+        try {
+            pdf = pdfService.generatePrescriptionPdf(prescription, sequenceNumber);
+            entry.getOutputStream().write(pdf);
+        } catch (Exception e) {
+            entry.discard();
+            throw e;
+        }
+        entry.commit();
+        return pdf;
+    }
+}
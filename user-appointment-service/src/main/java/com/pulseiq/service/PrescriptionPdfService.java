@@ -1,5 +1,8 @@
 package com.pulseiq.service;
 
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
 import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.colors.DeviceRgb;
@@ -25,6 +28,7 @@ import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -39,6 +43,13 @@ public class PrescriptionPdfService {
     private static final DeviceRgb TEXT_COLOR = new DeviceRgb(44, 62, 80);
     private static final DeviceRgb BORDER_COLOR = new DeviceRgb(229, 229, 229);
     
+    // Bump whenever the layout changes so cached renders of the old template are not served
+    public static final int TEMPLATE_VERSION = 1;
+    
+    // Parsed font programs are shared; a PdfFont is bound to one PdfDocument so it is created per render
+    private static final FontProgram BOLD_FONT_PROGRAM = loadFontProgram(StandardFonts.HELVETICA_BOLD);
+    private static final FontProgram REGULAR_FONT_PROGRAM = loadFontProgram(StandardFonts.HELVETICA);
+    
     // Backward compatibility method
     public byte[] generatePrescriptionPdf(PrescriptionDto prescription) throws Exception {
         return generatePrescriptionPdf(prescription, 1); // Default to sequence number 1
@@ -46,18 +57,28 @@ public class PrescriptionPdfService {
     
     public byte[] generatePrescriptionPdf(PrescriptionDto prescription, int sequenceNumber) throws Exception {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generatePrescriptionPdf(prescription, sequenceNumber, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    /**
+     * Render straight into {@code outputStream}; pages are written out as they are completed.
+     * The stream is flushed but left open for the caller.
+     */
+    public void generatePrescriptionPdf(PrescriptionDto prescription, int sequenceNumber, OutputStream outputStream) throws Exception {
         PdfWriter writer = new PdfWriter(outputStream);
+        writer.setCloseStream(false);
         PdfDocument pdfDocument = new PdfDocument(writer);
         Document document = new Document(pdfDocument, PageSize.A4);
         
         // Set margins
         document.setMargins(30, 30, 30, 30);
 
-        // Create fonts
-        PdfFont titleFont = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
-        PdfFont boldFont = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
-        PdfFont regularFont = PdfFontFactory.createFont(StandardFonts.HELVETICA);
-        PdfFont smallFont = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+        // Create fonts (title/small share the bold/regular instances, one font resource each)
+        PdfFont boldFont = PdfFontFactory.createFont(BOLD_FONT_PROGRAM, PdfEncodings.WINANSI);
+        PdfFont regularFont = PdfFontFactory.createFont(REGULAR_FONT_PROGRAM, PdfEncodings.WINANSI);
+        PdfFont titleFont = boldFont;
+        PdfFont smallFont = regularFont;
 
         // Add letterhead/header
         createHeader(document, titleFont, boldFont, sequenceNumber);
@@ -78,7 +99,15 @@ public class PrescriptionPdfService {
         addWatermark(pdfDocument, regularFont);
 
         document.close();
-        return outputStream.toByteArray();
+        outputStream.flush();
+    }
+
+    private static FontProgram loadFontProgram(String fontName) {
+        try {
+            return FontProgramFactory.createFont(fontName);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load font " + fontName, e);
+        }
     }
 
     private void createHeader(Document document, PdfFont titleFont, PdfFont boldFont, int sequenceNumber) {
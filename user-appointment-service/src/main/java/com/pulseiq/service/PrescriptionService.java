@@ -2,12 +2,20 @@ package com.pulseiq.service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.pulseiq.dto.CreatePrescriptionDto;
 import com.pulseiq.dto.PrescriptionDto;
@@ -15,12 +23,12 @@ import com.pulseiq.dto.PrescriptionMedicineDto;
 import com.pulseiq.entity.Doctor;
 import com.pulseiq.entity.Medicine;
 import com.pulseiq.entity.Notification;
-import com.pulseiq.entity.Patient;
 import com.pulseiq.entity.Prescription;
 import com.pulseiq.entity.PrescriptionMedicine;
 import com.pulseiq.repository.DoctorRepository;
 import com.pulseiq.repository.MedicineRepository;
 import com.pulseiq.repository.PatientRepository;
+import com.pulseiq.repository.PrescriptionCounterRepository;
 import com.pulseiq.repository.PrescriptionMedicineRepository;
 import com.pulseiq.repository.PrescriptionRepository;
 import com.pulseiq.repository.UserRepository;
@@ -33,11 +41,13 @@ public class PrescriptionService {
     
     private final PrescriptionRepository prescriptionRepository;
     private final PrescriptionMedicineRepository prescriptionMedicineRepository;
+    private final PrescriptionCounterRepository prescriptionCounterRepository;
     private final MedicineRepository medicineRepository;
     private final UserRepository userRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
     private final NotificationService notificationService;
+    private final PrescriptionPdfCache prescriptionPdfCache;
     
     @Transactional
     public PrescriptionDto createPrescription(String doctorId, CreatePrescriptionDto createDto) {
@@ -50,6 +60,8 @@ public class PrescriptionService {
         prescription.setCreatedAt(LocalDateTime.now());
         prescription.setUpdatedAt(LocalDateTime.now());
         prescription.setIsActive(true);
+        // Reserve the patient's next sequence number; the counter row stays locked until commit
+        prescription.setPatientSequence(prescriptionCounterRepository.nextSequence(createDto.getPatientId()));
         
         Prescription savedPrescription = prescriptionRepository.save(prescription);
         
@@ -58,47 +70,46 @@ public class PrescriptionService {
         
         if (createDto.getMedicines() != null && !createDto.getMedicines().isEmpty()) {
             System.out.println("Processing " + createDto.getMedicines().size() + " medicines for prescription");
-            prescriptionMedicines = createDto.getMedicines().stream()
-                    .filter(medicineDto -> {
-                        // Skip medicines with null or invalid IDs
-                        if (medicineDto.getMedicineId() == null) {
-                            System.out.println("Skipping medicine with null ID");
-                            return false;
-                        }
-                        return true;
-                    })
-                    .map(medicineDto -> {
-                        System.out.println("Processing medicine DTO: " + medicineDto);
-                        System.out.println("Medicine ID: " + medicineDto.getMedicineId());
-                        
-                        // Try to find the medicine, skip if not found for now
-                        Medicine medicine = medicineRepository.findById(medicineDto.getMedicineId())
-                                .orElse(null);
-                        
-                        if (medicine == null) {
-                            System.out.println("Medicine not found with ID: " + medicineDto.getMedicineId() + ", skipping for now");
-                            return null; // Skip this medicine
-                        }
-                        
-                        PrescriptionMedicine prescriptionMedicine = new PrescriptionMedicine();
-                        prescriptionMedicine.setPrescription(savedPrescription);
-                        prescriptionMedicine.setMedicine(medicine);
-                        prescriptionMedicine.setQuantity(medicineDto.getQuantity());
-                        prescriptionMedicine.setDurationDays(medicineDto.getDurationDays());
-                        prescriptionMedicine.setMorningDose(medicineDto.getMorningDose());
-                        prescriptionMedicine.setNoonDose(medicineDto.getNoonDose());
-                        prescriptionMedicine.setEveningDose(medicineDto.getEveningDose());
-                        prescriptionMedicine.setMealTiming(medicineDto.getMealTiming());
-                        prescriptionMedicine.setSpecialInstructions(medicineDto.getSpecialInstructions());
-                        
-                        return prescriptionMedicine;
-                    })
-                    .filter(pm -> pm != null) // Remove null entries
-                    .collect(Collectors.toList());
+            
+            // Resolve every referenced medicine with a single query instead of one findById per line
+            Set<Long> medicineIds = createDto.getMedicines().stream()
+                    .map(CreatePrescriptionDto.CreatePrescriptionMedicineDto::getMedicineId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Map<Long, Medicine> medicinesById = medicineRepository.findAllById(medicineIds)
+                    .stream()
+                    .collect(Collectors.toMap(Medicine::getMedicineId, Function.identity()));
+            
+            for (CreatePrescriptionDto.CreatePrescriptionMedicineDto medicineDto : createDto.getMedicines()) {
+                // Skip medicines with null or invalid IDs
+                if (medicineDto.getMedicineId() == null) {
+                    System.out.println("Skipping medicine with null ID");
+                    continue;
+                }
+                
+                Medicine medicine = medicinesById.get(medicineDto.getMedicineId());
+                if (medicine == null) {
+                    System.out.println("Medicine not found with ID: " + medicineDto.getMedicineId() + ", skipping for now");
+                    continue;
+                }
+                
+                PrescriptionMedicine prescriptionMedicine = new PrescriptionMedicine();
+                prescriptionMedicine.setPrescription(savedPrescription);
+                prescriptionMedicine.setMedicine(medicine);
+                prescriptionMedicine.setQuantity(medicineDto.getQuantity());
+                prescriptionMedicine.setDurationDays(medicineDto.getDurationDays());
+                prescriptionMedicine.setMorningDose(medicineDto.getMorningDose());
+                prescriptionMedicine.setNoonDose(medicineDto.getNoonDose());
+                prescriptionMedicine.setEveningDose(medicineDto.getEveningDose());
+                prescriptionMedicine.setMealTiming(medicineDto.getMealTiming());
+                prescriptionMedicine.setSpecialInstructions(medicineDto.getSpecialInstructions());
+                prescriptionMedicines.add(prescriptionMedicine);
+            }
         } else {
             System.out.println("No medicines provided for prescription - creating prescription with notes only");
         }
         
+        // Sequence-generated IDs let Hibernate send all lines as one JDBC batch at flush
         List<PrescriptionMedicine> savedPrescriptionMedicines = new ArrayList<>();
         if (!prescriptionMedicines.isEmpty()) {
             savedPrescriptionMedicines = prescriptionMedicineRepository.saveAll(prescriptionMedicines);
@@ -108,7 +119,27 @@ public class PrescriptionService {
         // Create notification for patient
         createPrescriptionNotification(savedPrescription);
         
-        return convertToDto(savedPrescription);
+        PrescriptionDto dto = convertToDto(savedPrescription);
+        prewarmPdfAfterCommit(dto);
+        return dto;
+    }
+    
+    /**
+     * Render the PDF in the background once the prescription is committed, so the first
+     * download is served from the cache.
+     */
+    private void prewarmPdfAfterCommit(PrescriptionDto prescription) {
+        int sequenceNumber = prescription.getSequenceNumber() != null ? prescription.getSequenceNumber() : 1;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    prescriptionPdfCache.prewarm(prescription, sequenceNumber);
+                }
+            });
+        } else {
+            prescriptionPdfCache.prewarm(prescription, sequenceNumber);
+        }
     }
     
     private void createPrescriptionNotification(Prescription prescription) {
@@ -122,8 +153,8 @@ public class PrescriptionService {
                 }
             }
             
-            // Create notification
-            notificationService.createNotification(
+            // Create notification; it is written once the prescription commits
+            notificationService.queueNotification(
                 prescription.getPatientId(),
                 "PATIENT",
                 "New Prescription Available",
@@ -139,23 +170,27 @@ public class PrescriptionService {
     }
     
     public List<PrescriptionDto> getPrescriptionsByPatient(String patientId) {
-        return prescriptionRepository.findByPatientIdAndIsActiveTrue(patientId)
-                .stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt())) // Sort by creation date descending (latest first)
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return getPrescriptionsByPatient(patientId, Pageable.unpaged());
+    }
+    
+    /**
+     * Latest-first page of a patient's prescriptions. Paging and sorting run in SQL; the page is
+     * then loaded with its lines, medicines and names in a fixed number of queries.
+     */
+    public List<PrescriptionDto> getPrescriptionsByPatient(String patientId, Pageable pageable) {
+        return loadPrescriptions(prescriptionRepository.findActiveIdsByPatientId(patientId, pageable));
     }
     
     public List<PrescriptionDto> getPrescriptionsByDoctor(String doctorId) {
-        return prescriptionRepository.findByDoctorIdAndIsActiveTrue(doctorId)
-                .stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt())) // Sort by creation date descending (latest first)
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return getPrescriptionsByDoctor(doctorId, Pageable.unpaged());
+    }
+    
+    public List<PrescriptionDto> getPrescriptionsByDoctor(String doctorId, Pageable pageable) {
+        return loadPrescriptions(prescriptionRepository.findActiveIdsByDoctorId(doctorId, pageable));
     }
     
     public Optional<PrescriptionDto> getPrescriptionById(Long prescriptionId) {
-        return prescriptionRepository.findById(prescriptionId)
+        return prescriptionRepository.findWithMedicinesById(prescriptionId)
                 .map(this::convertToDto);
     }
     
@@ -170,54 +205,91 @@ public class PrescriptionService {
                 .orElseThrow(() -> new RuntimeException("Prescription not found"));
         prescription.setIsActive(false);
         prescriptionRepository.save(prescription);
+        prescriptionPdfCache.evict(prescriptionId);
+    }
+    
+    /**
+     * Sequence number printed on the prescription PDF. Stored at creation time; prescriptions
+     * created before numbers were stored fall back to an indexed count over the patient's history.
+     */
+    public int getPrescriptionSequenceNumber(PrescriptionDto prescription) {
+        if (prescription.getSequenceNumber() != null) {
+            return prescription.getSequenceNumber();
+        }
+        long position = prescriptionRepository.countPatientPrescriptionsUpTo(
+                prescription.getPatientId(), prescription.getCreatedAt(), prescription.getPrescriptionId());
+        return position > 0 ? (int) position : 1;
     }
     
-    public int getPrescriptionSequenceNumber(String patientId, Long prescriptionId) {
-        List<Prescription> patientPrescriptions = prescriptionRepository.findByPatientIdAndIsActiveTrue(patientId)
+    private List<PrescriptionDto> loadPrescriptions(List<Long> orderedIds) {
+        if (orderedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Prescription> prescriptionsById = prescriptionRepository.findWithMedicinesByIdIn(orderedIds)
                 .stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt())) // Sort by creation date descending (latest first)
+                .collect(Collectors.toMap(Prescription::getPrescriptionId, Function.identity()));
+        
+        // Keep the SQL order of the ID page
+        List<Prescription> prescriptions = orderedIds.stream()
+                .map(prescriptionsById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return convertToDtos(prescriptions);
+    }
+    
+    private PrescriptionDto convertToDto(Prescription prescription) {
+        return convertToDtos(List.of(prescription)).get(0);
+    }
+    
+    private List<PrescriptionDto> convertToDtos(List<Prescription> prescriptions) {
+        // Doctor and patient IDs are strings like "D202507001", "P202507001"; resolve all names in two queries
+        Set<String> doctorIds = prescriptions.stream()
+                .map(Prescription::getDoctorId)
+                .filter(id -> id != null && id.startsWith("D"))
+                .collect(Collectors.toSet());
+        Set<String> patientIds = prescriptions.stream()
+                .map(Prescription::getPatientId)
+                .filter(id -> id != null && id.startsWith("P"))
+                .collect(Collectors.toSet());
         
-        for (int i = 0; i < patientPrescriptions.size(); i++) {
-            if (patientPrescriptions.get(i).getPrescriptionId().equals(prescriptionId)) {
-                return i + 1; // Return 1-based sequence number
+        Map<String, Object[]> doctorsById = new HashMap<>();
+        Map<String, Object[]> patientsById = new HashMap<>();
+        try {
+            if (!doctorIds.isEmpty()) {
+                doctorRepository.findNamesByDoctorIdIn(doctorIds).forEach(row -> doctorsById.put((String) row[0], row));
             }
+            if (!patientIds.isEmpty()) {
+                patientRepository.findNamesByPatientIdIn(patientIds).forEach(row -> patientsById.put((String) row[0], row));
+            }
+        } catch (Exception e) {
+            System.err.println("Error getting user names: " + e.getMessage());
         }
         
-        return 1; // Default to 1 if not found
+        return prescriptions.stream()
+                .map(prescription -> convertToDto(prescription, doctorsById.get(prescription.getDoctorId()),
+                        patientsById.get(prescription.getPatientId())))
+                .collect(Collectors.toList());
     }
     
-    private PrescriptionDto convertToDto(Prescription prescription) {
+    private PrescriptionDto convertToDto(Prescription prescription, Object[] doctorRow, Object[] patientRow) {
         PrescriptionDto dto = new PrescriptionDto();
         dto.setPrescriptionId(prescription.getPrescriptionId());
         dto.setDoctorId(prescription.getDoctorId());
         dto.setPatientId(prescription.getPatientId());
         dto.setAppointmentId(prescription.getAppointmentId());
+        dto.setSequenceNumber(prescription.getPatientSequence());
         dto.setDoctorNotes(prescription.getDoctorNotes());
         dto.setCreatedAt(prescription.getCreatedAt());
         dto.setUpdatedAt(prescription.getUpdatedAt());
         dto.setIsActive(prescription.getIsActive());
         
-        // Get doctor and patient names
-        try {
-            // Doctor and patient IDs are strings like "D202507001", "P202507001"
-            // We need to look them up in the appropriate repository
-            if (prescription.getDoctorId().startsWith("D")) {
-                Doctor doctor = doctorRepository.findByDoctorId(prescription.getDoctorId()).orElse(null);
-                if (doctor != null) {
-                    dto.setDoctorName(doctor.getFirstName() + " " + doctor.getLastName());
-                    dto.setDoctorLicenseNumber(doctor.getLicenseNumber());
-                }
-            }
-            
-            if (prescription.getPatientId().startsWith("P")) {
-                Patient patient = patientRepository.findByPatientId(prescription.getPatientId()).orElse(null);
-                if (patient != null) {
-                    dto.setPatientName(patient.getFirstName() + " " + patient.getLastName());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error getting user names: " + e.getMessage());
+        // Rows are (id, firstName, lastName[, licenseNumber])
+        if (doctorRow != null) {
+            dto.setDoctorName(doctorRow[1] + " " + doctorRow[2]);
+            dto.setDoctorLicenseNumber((String) doctorRow[3]);
+        }
+        if (patientRow != null) {
+            dto.setPatientName(patientRow[1] + " " + patientRow[2]);
         }
         
         // Convert prescription medicines
@@ -0,0 +1,122 @@
+package com.pulseiq.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.pulseiq.entity.TestResult;
+import com.pulseiq.repository.TestResultRepository;
+import com.pulseiq.storage.BlobStorageService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts the text of uploaded reports, adds it to the {@link ReportSearchIndex} and records the
+ * lab values found in it. Extraction runs on a background thread after the upload commits, so it
+ * never slows the upload down.
+ */
+@Slf4j
+@Service
+public class ReportIndexingService {
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private final ReportSearchIndex reportSearchIndex;
+    private final BlobStorageService blobStorageService;
+    private final TestResultRepository testResultRepository;
+    private final LabValueParser labValueParser;
+    private final LabValueService labValueService;
+    private final ThreadPoolExecutor executor;
+
+    public ReportIndexingService(ReportSearchIndex reportSearchIndex,
+                                 BlobStorageService blobStorageService,
+                                 TestResultRepository testResultRepository,
+                                 LabValueParser labValueParser,
+                                 LabValueService labValueService) {
+        this.reportSearchIndex = reportSearchIndex;
+        this.blobStorageService = blobStorageService;
+        this.testResultRepository = testResultRepository;
+        this.labValueParser = labValueParser;
+        this.labValueService = labValueService;
+        // A dropped report is picked up again by the startup backfill
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> log.warn("Report indexing queue is full, skipping a report"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Index the report once the current transaction commits, or right away without one.
+     */
+    public void indexAfterCommit(TestResult testResult) {
+        String patientId = testResult.getPatientId();
+        Long testId = testResult.getTestId();
+        String blobRef = testResult.getBlobRef();
+        LocalDateTime measuredAt = LabValueService.measuredAt(testResult);
+        Runnable task = () -> executor.execute(() -> indexReport(patientId, testId, blobRef, measuredAt));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Extract and index one report on the calling thread. Failures are logged, not thrown.
+     */
+    public void indexReport(String patientId, Long testId, String blobRef, LocalDateTime measuredAt) {
+        try {
+            String text = extractText(testId, blobRef);
+            reportSearchIndex.index(patientId, testId, text);
+            labValueService.recordParsedValues(patientId, testId, measuredAt, labValueParser.parse(text));
+        } catch (Exception e) {
+            log.warn("Could not index test result {}: {}", testId, e.getMessage());
+        }
+    }
+
+    private String extractText(Long testId, String blobRef) throws IOException {
+        try (InputStream content = openReport(testId, blobRef);
+             PdfDocument pdf = new PdfDocument(new PdfReader(content))) {
+            StringBuilder text = new StringBuilder();
+            for (int page = 1; page <= pdf.getNumberOfPages(); page++) {
+                text.append(PdfTextExtractor.getTextFromPage(pdf.getPage(page))).append('\n');
+            }
+            return text.toString();
+        }
+    }
+
+    private InputStream openReport(Long testId, String blobRef) throws IOException {
+        if (blobRef != null) {
+            return blobStorageService.open(blobRef);
+        }
+        byte[] legacyPdf = testResultRepository.findLegacyPdfData(testId);
+        if (legacyPdf == null) {
+            throw new IOException("PDF not found");
+        }
+        return new ByteArrayInputStream(legacyPdf);
+    }
+}
@@ -0,0 +1,261 @@
+package com.pulseiq.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the text of test-result reports, sharded per patient. Every search is
+ * scoped to one patient, so a shard is all a query ever needs; shards are kept on disk and the
+ * most recently used ones are held in memory. A shard is pinned while a caller uses it and is
+ * only evicted once idle, so every caller for a patient works on the same instance.
+ */
+@Slf4j
+@Component
+public class ReportSearchIndex {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private final Path indexDir;
+    private final int maxOpenShards;
+    // Access-ordered, so iteration starts at the least recently used shard
+    private final Map<String, Shard> openShards = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ReportSearchIndex(@Value("${app.report-search.index-dir:data/report-index}") String indexDir,
+                             @Value("${app.report-search.max-open-shards:500}") int maxOpenShards) {
+        this.indexDir = Paths.get(indexDir).toAbsolutePath().normalize();
+        this.maxOpenShards = maxOpenShards;
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            Files.createDirectories(indexDir);
+        } catch (IOException e) {
+            log.warn("Report index directory {} is not usable: {}", indexDir, e.getMessage());
+        }
+    }
+
+    /**
+     * Add or replace the text of one report.
+     */
+    public void index(String patientId, Long testId, String text) {
+        Shard shard = acquire(patientId);
+        try {
+            synchronized (shard) {
+                shard.remove(testId);
+                shard.add(testId, tokenize(text));
+                persist(patientId, shard);
+            }
+        } finally {
+            release(shard);
+        }
+    }
+
+    public void remove(String patientId, Long testId) {
+        Shard shard = acquire(patientId);
+        try {
+            synchronized (shard) {
+                if (shard.remove(testId)) {
+                    persist(patientId, shard);
+                }
+            }
+        } finally {
+            release(shard);
+        }
+    }
+
+    public boolean contains(String patientId, Long testId) {
+        Shard shard = acquire(patientId);
+        try {
+            synchronized (shard) {
+                return shard.termsByTest.containsKey(testId);
+            }
+        } finally {
+            release(shard);
+        }
+    }
+
+    /**
+     * Ids of the patient's reports containing every word of the query; each word also matches
+     * longer words it is a prefix of ("creat" finds "creatinine").
+     */
+    public Set<Long> search(String patientId, String query) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Set.of();
+        }
+        Shard shard = acquire(patientId);
+        try {
+            synchronized (shard) {
+                Set<Long> matches = null;
+                for (String term : terms) {
+                    Set<Long> termMatches = new HashSet<>();
+                    shard.postings.subMap(term, true, term + Character.MAX_VALUE, true)
+                            .values().forEach(termMatches::addAll);
+                    if (matches == null) {
+                        matches = termMatches;
+                    } else {
+                        matches.retainAll(termMatches);
+                    }
+                    if (matches.isEmpty()) {
+                        break;
+                    }
+                }
+                return matches;
+            }
+        } finally {
+            release(shard);
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() >= MIN_TERM_LENGTH && token.length() <= MAX_TERM_LENGTH) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    private Shard acquire(String patientId) {
+        synchronized (openShards) {
+            Shard shard = openShards.computeIfAbsent(patientId, this::load);
+            shard.pins++;
+            evictIdleShards();
+            return shard;
+        }
+    }
+
+    private void release(Shard shard) {
+        synchronized (openShards) {
+            shard.pins--;
+            evictIdleShards();
+        }
+    }
+
+    // Every change is persisted before its shard is released, so an idle shard can be dropped as is
+    private void evictIdleShards() {
+        Iterator<Shard> shards = openShards.values().iterator();
+        while (openShards.size() > maxOpenShards && shards.hasNext()) {
+            if (shards.next().pins == 0) {
+                shards.remove();
+            }
+        }
+    }
+
+    private Shard load(String patientId) {
+        Shard shard = new Shard();
+        Path file = shardFile(patientId);
+        if (!Files.exists(file)) {
+            return shard;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return shard;
+            }
+            int reports = in.readInt();
+            for (int i = 0; i < reports; i++) {
+                long testId = in.readLong();
+                int termCount = in.readInt();
+                Set<String> terms = new HashSet<>(termCount * 2);
+                for (int j = 0; j < termCount; j++) {
+                    terms.add(in.readUTF());
+                }
+                shard.add(testId, terms);
+            }
+        } catch (IOException e) {
+            // The shard is rebuilt by the startup backfill
+            log.warn("Discarding unreadable report index shard {}: {}", file, e.getMessage());
+            return new Shard();
+        }
+        return shard;
+    }
+
+    private void persist(String patientId, Shard shard) {
+        Path file = shardFile(patientId);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".part");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeInt(shard.termsByTest.size());
+                    for (Map.Entry<Long, Set<String>> report : shard.termsByTest.entrySet()) {
+                        out.writeLong(report.getKey());
+                        out.writeInt(report.getValue().size());
+                        for (String term : report.getValue()) {
+                            out.writeUTF(term);
+                        }
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write report index shard {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path shardFile(String patientId) {
+        String safeId = patientId.replaceAll("[^A-Za-z0-9_-]", "_");
+        String fanOut = safeId.length() >= 2 ? safeId.substring(safeId.length() - 2) : "_" + safeId;
+        return indexDir.resolve(fanOut).resolve(safeId + ".idx");
+    }
+
+    private static class Shard {
+        private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+        private final Map<Long, Set<String>> termsByTest = new HashMap<>();
+        // Callers currently using the shard; guarded by openShards
+        private int pins;
+
+        void add(long testId, Set<String> terms) {
+            termsByTest.put(testId, terms);
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new HashSet<>()).add(testId);
+            }
+        }
+
+        boolean remove(long testId) {
+            Set<String> terms = termsByTest.remove(testId);
+            if (terms == null) {
+                return false;
+            }
+            for (String term : terms) {
+                Set<Long> tests = postings.get(term);
+                if (tests != null && tests.remove(testId) && tests.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.pulseiq.service;
+
+import com.pulseiq.dto.TestResultBatchItemDto;
+import com.pulseiq.dto.TestResultBatchResultDto;
+import com.pulseiq.entity.Notification;
+import com.pulseiq.entity.TestResult;
+import com.pulseiq.repository.TestResultRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads many test results in one request. IDs are validated with set-based queries, files are
+ * streamed to the blob store in parallel, and the rows are inserted in JDBC batches within one
+ * transaction; patient notifications are written behind it. Each file gets its own result; a bad
+ * file does not stop the others.
+ */
+@Slf4j
+@Service
+public class TestResultBatchUploadService {
+
+    public static final int MAX_BATCH_SIZE = 50;
+
+    private final TestResultValidationService validationService;
+    private final TestResultPdfStorage testResultPdfStorage;
+    private final TestResultRepository testResultRepository;
+    private final NotificationService notificationService;
+    private final ReportIndexingService reportIndexingService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    public TestResultBatchUploadService(TestResultValidationService validationService,
+                                        TestResultPdfStorage testResultPdfStorage,
+                                        TestResultRepository testResultRepository,
+                                        NotificationService notificationService,
+                                        ReportIndexingService reportIndexingService,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.test-results.batch-upload-threads:4}") int threads) {
+        this.validationService = validationService;
+        this.testResultPdfStorage = testResultPdfStorage;
+        this.testResultRepository = testResultRepository;
+        this.notificationService = notificationService;
+        this.reportIndexingService = reportIndexingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "test-result-batch-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public List<TestResultBatchResultDto> uploadTestResults(List<TestResultBatchItemDto> items,
+                                                            List<MultipartFile> files, String technicianId) {
+        if (items.size() != files.size()) {
+            throw new RuntimeException("Expected metadata for each file: got " + items.size()
+                    + " metadata entries for " + files.size() + " files");
+        }
+        if (files.isEmpty() || files.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("A batch must contain between 1 and " + MAX_BATCH_SIZE + " files");
+        }
+
+        List<TestResultValidationService.ValidationResult> validations =
+                validationService.validateBatchUpload(items, files, technicianId);
+
+        // Stream the valid files to storage in parallel
+        List<CompletableFuture<TestResultPdfStorage.StoredPdf>> stored = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            stored.add(validations.get(i).isValid()
+                    ? CompletableFuture.supplyAsync(() -> testResultPdfStorage.store(file), executor)
+                    : null);
+        }
+
+        TestResultBatchResultDto[] results = new TestResultBatchResultDto[files.size()];
+        List<TestResult> rows = new ArrayList<>();
+        List<Integer> rowIndexes = new ArrayList<>();
+        List<TestResultPdfStorage.StoredPdf> storedPdfs = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < files.size(); i++) {
+            String fileName = files.get(i).getOriginalFilename();
+            if (stored.get(i) == null) {
+                results[i] = TestResultBatchResultDto.failed(i, fileName, validations.get(i).getErrorMessage());
+                continue;
+            }
+            TestResultPdfStorage.StoredPdf storedPdf;
+            try {
+                storedPdf = stored.get(i).join();
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results[i] = TestResultBatchResultDto.failed(i, fileName, cause.getMessage());
+                continue;
+            }
+            TestResult testResult = toTestResult(items.get(i), fileName, technicianId, now);
+            storedPdf.applyTo(testResult);
+            rows.add(testResult);
+            rowIndexes.add(i);
+            storedPdfs.add(storedPdf);
+        }
+
+        if (!rows.isEmpty()) {
+            try {
+                List<TestResult> saved = transactionTemplate.execute(status -> saveBatch(rows, storedPdfs, technicianId));
+                for (int j = 0; j < saved.size(); j++) {
+                    int index = rowIndexes.get(j);
+                    results[index] = TestResultBatchResultDto.succeeded(index, files.get(index).getOriginalFilename(),
+                            saved.get(j).getTestId());
+                }
+            } catch (RuntimeException e) {
+                log.error("Batch upload of {} test results failed", rows.size(), e);
+                for (int index : rowIndexes) {
+                    results[index] = TestResultBatchResultDto.failed(index, files.get(index).getOriginalFilename(),
+                            "Failed to save test result");
+                }
+            }
+        }
+
+        log.info("Technician {} batch-uploaded {} of {} test results", technicianId, rows.size(), files.size());
+        return List.of(results);
+    }
+
+    private List<TestResult> saveBatch(List<TestResult> rows, List<TestResultPdfStorage.StoredPdf> storedPdfs,
+                                       String technicianId) {
+        storedPdfs.forEach(testResultPdfStorage::deleteOnRollback);
+        List<TestResult> saved = testResultRepository.saveAll(rows);
+
+        // Queued now and written in the background once this transaction commits
+        for (TestResult testResult : saved) {
+            notificationService.queueNotification(
+                    testResult.getPatientId(),
+                    "PATIENT",
+                    "Test Result Available",
+                    "Your test result for " + testResult.getTestName() + " is now available.",
+                    Notification.NotificationType.TEST_RESULT_UPLOADED,
+                    testResult.getTestId().toString(),
+                    "TEST_RESULT",
+                    technicianId);
+        }
+
+        saved.forEach(reportIndexingService::indexAfterCommit);
+        return saved;
+    }
+
+    private static TestResult toTestResult(TestResultBatchItemDto item, String fileName, String technicianId,
+                                           LocalDateTime uploadedAt) {
+        TestResult testResult = new TestResult();
+        testResult.setTestName(item.getTestName());
+        testResult.setTestType(item.getTestType());
+        testResult.setDescription(item.getDescription());
+        testResult.setPatientId(item.getPatientId());
+        if (item.getDoctorId() != null && !item.getDoctorId().trim().isEmpty()) {
+            testResult.setDoctorId(item.getDoctorId().trim());
+        }
+        testResult.setTechnicianId(technicianId);
+        testResult.setPdfFilename(fileName);
+        testResult.setTestDate(item.getTestDate());
+        testResult.setNotes(item.getNotes());
+        testResult.setUploadedAt(uploadedAt);
+        testResult.setStatus(TestResult.TestStatus.COMPLETED);
+        return testResult;
+    }
+}
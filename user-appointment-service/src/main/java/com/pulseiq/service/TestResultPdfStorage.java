@@ -0,0 +1,84 @@
+package com.pulseiq.service;
+
+import com.pulseiq.entity.TestResult;
+import com.pulseiq.repository.TestResultRepository;
+import com.pulseiq.storage.BlobStorageService;
+import com.pulseiq.storage.PdfUploadStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Stores uploaded test-result PDFs. Each upload is read once: the {@code %PDF} header is checked
+ * and the SHA-256 computed while the blob store consumes the stream. A file whose hash matches
+ * an earlier upload reuses that upload's blob.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestResultPdfStorage {
+
+    private final BlobStorageService blobStorageService;
+    private final TestResultRepository testResultRepository;
+
+    public StoredPdf store(MultipartFile pdfFile) {
+        String blobRef;
+        String contentHash;
+        long size;
+        try (PdfUploadStream content = new PdfUploadStream(pdfFile.getInputStream())) {
+            blobRef = blobStorageService.put(content);
+            contentHash = content.getContentHash();
+            size = content.getBytesRead();
+        } catch (PdfUploadStream.InvalidPdfException e) {
+            throw new RuntimeException(e.getMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to process PDF file", e);
+        }
+
+        // The same report uploaded again points at the blob already stored
+        TestResult existing = testResultRepository.findFirstByContentHashAndBlobRefIsNotNull(contentHash).orElse(null);
+        if (existing != null) {
+            blobStorageService.delete(blobRef);
+            return new StoredPdf(existing.getBlobRef(), contentHash, size, true);
+        }
+        return new StoredPdf(blobRef, contentHash, size, false);
+    }
+
+    /**
+     * Delete a newly written blob if the current transaction rolls back.
+     */
+    public void deleteOnRollback(StoredPdf storedPdf) {
+        if (storedPdf.reused() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    blobStorageService.delete(storedPdf.blobRef());
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete a newly written blob that will not be saved on any row.
+     */
+    public void discard(StoredPdf storedPdf) {
+        if (!storedPdf.reused()) {
+            blobStorageService.delete(storedPdf.blobRef());
+        }
+    }
+
+    public record StoredPdf(String blobRef, String contentHash, long size, boolean reused) {
+
+        public void applyTo(TestResult testResult) {
+            testResult.setBlobRef(blobRef);
+            testResult.setContentHash(contentHash);
+            testResult.setFileSize(size);
+        }
+    }
+}
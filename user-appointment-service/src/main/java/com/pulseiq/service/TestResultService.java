@@ -2,10 +2,10 @@ package com.pulseiq.service;
 
 import com.pulseiq.dto.TestResultUploadDto;
 import com.pulseiq.dto.TestResultResponseDto;
+import com.pulseiq.dto.TestResultSearchPageDto;
 import com.pulseiq.dto.TestResultStatsDto;
 import com.pulseiq.entity.TestResult;
-import org.springframework.core.io.Resource;
-import org.springframework.http.ResponseEntity;
+import com.pulseiq.storage.BlobDownload;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -38,14 +38,14 @@ public interface TestResultService {
     TestResultResponseDto getTestResultById(Long testId);
     
     /**
-     * Download PDF file of a test result
+     * Resolve the PDF of a test result for download
      */
-    ResponseEntity<Resource> downloadTestResultPdf(Long testId, String userId);
+    BlobDownload getTestResultPdf(Long testId, String userId);
     
     /**
-     * Download PDF file of a test result for a specific patient (OTP-verified access)
+     * Resolve the PDF of a test result for a specific patient (OTP-verified access)
      */
-    ResponseEntity<Resource> downloadTestResultForPatient(Long testId, String doctorId, String patientId);
+    BlobDownload getTestResultPdfForPatient(Long testId, String doctorId, String patientId);
     
     /**
      * Get test results by patient and date range
@@ -80,11 +80,14 @@ public interface TestResultService {
     TestResultStatsDto getTestStatsByTechnicianId(String technicianId);
     
     /**
-     * Search test results with multiple criteria
+     * Search test results with multiple criteria, newest first. Pass the returned cursor to get
+     * the next page.
      */
-    List<TestResultResponseDto> searchTestResults(String patientId, String doctorId, 
-                                                 String technicianId, String testType, 
-                                                 TestResult.TestStatus status);
+    TestResultSearchPageDto searchTestResults(String patientId, String doctorId,
+                                              String technicianId, String testType,
+                                              TestResult.TestStatus status,
+                                              LocalDateTime uploadedFrom, LocalDateTime uploadedTo,
+                                              String cursor, int size);
     
     /**
      * Get total count of test results (for debugging)
@@ -105,4 +108,14 @@ public interface TestResultService {
      * Get test results by patient and test type with doctor permission validation
      */
     List<TestResultResponseDto> getTestResultsByPatientAndTestTypeForDoctor(String patientId, String testType, String doctorId);
+
+    /**
+     * Search the text of a patient's reports, newest first
+     */
+    List<TestResultResponseDto> searchReportContents(String patientId, String query);
+
+    /**
+     * Search the text of a patient's reports for a doctor with a completed appointment
+     */
+    List<TestResultResponseDto> searchReportContentsForDoctor(String patientId, String doctorId, String query);
 }
@@ -1,27 +1,33 @@
 package com.pulseiq.service;
 
+import com.pulseiq.dto.KeysetCursor;
 import com.pulseiq.dto.TestResultUploadDto;
 import com.pulseiq.dto.TestResultResponseDto;
+import com.pulseiq.dto.TestResultSearchPageDto;
 import com.pulseiq.dto.TestResultStatsDto;
 import com.pulseiq.entity.TestResult;
 import com.pulseiq.entity.Appointment.AppointmentStatus;
 import com.pulseiq.repository.TestResultRepository;
 import com.pulseiq.repository.AppointmentRepository;
+import com.pulseiq.repository.TestResultSpecifications;
+import com.pulseiq.storage.BlobDownload;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +38,9 @@ public class TestResultServiceImpl implements TestResultService {
     private final TestResultRepository testResultRepository;
     private final AppointmentRepository appointmentRepository;
     private final TestResultValidationService validationService;
+    private final TestResultPdfStorage testResultPdfStorage;
+    private final ReportIndexingService reportIndexingService;
+    private final ReportSearchIndex reportSearchIndex;
 
     @Override
     public TestResultResponseDto uploadTestResult(TestResultUploadDto uploadDto, String technicianId) {
@@ -67,26 +76,21 @@ public class TestResultServiceImpl implements TestResultService {
         
         testResult.setTechnicianId(technicianId);
         testResult.setPdfFilename(pdfFile.getOriginalFilename());
-        testResult.setFileSize(pdfFile.getSize());
         testResult.setTestDate(uploadDto.getTestDate());
         testResult.setNotes(uploadDto.getNotes());
         testResult.setUploadedAt(LocalDateTime.now());
         testResult.setStatus(TestResult.TestStatus.COMPLETED);
 
-        try {
-            testResult.setPdfData(pdfFile.getBytes());
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to process PDF file", e);
-        }
+        // One pass over the upload: header check, SHA-256 and write to the blob store
+        TestResultPdfStorage.StoredPdf storedPdf = testResultPdfStorage.store(pdfFile);
+        storedPdf.applyTo(testResult);
+        testResultPdfStorage.deleteOnRollback(storedPdf);
 
         // Save to database
         TestResult savedTestResult = testResultRepository.save(testResult);
+        reportIndexingService.indexAfterCommit(savedTestResult);
 
-        // Fetch the complete entity with relationships for response
-        TestResult completeTestResult = testResultRepository.findById(savedTestResult.getTestId())
-                .orElseThrow(() -> new RuntimeException("Failed to retrieve saved test result"));
-
-        return new TestResultResponseDto(completeTestResult);
+        return new TestResultResponseDto(savedTestResult);
     }
 
     @Override
@@ -121,7 +125,8 @@ public class TestResultServiceImpl implements TestResultService {
     }
 
     @Override
-    public ResponseEntity<Resource> downloadTestResultPdf(Long testId, String userId) {
+    @Transactional(readOnly = true)
+    public BlobDownload getTestResultPdf(Long testId, String userId) {
         TestResult testResult = testResultRepository.findById(testId)
                 .orElseThrow(() -> new RuntimeException("Test result not found with ID: " + testId));
 
@@ -130,17 +135,12 @@ public class TestResultServiceImpl implements TestResultService {
             throw new RuntimeException("You don't have permission to download this test result");
         }
 
-        ByteArrayResource resource = new ByteArrayResource(testResult.getPdfData());
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .contentLength(testResult.getFileSize())
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + testResult.getPdfFilename() + "\"")
-                .body(resource);
+        return toDownload(testResult);
     }
 
     @Override
-    public ResponseEntity<Resource> downloadTestResultForPatient(Long testId, String doctorId, String patientId) {
+    @Transactional(readOnly = true)
+    public BlobDownload getTestResultPdfForPatient(Long testId, String doctorId, String patientId) {
         TestResult testResult = testResultRepository.findById(testId)
                 .orElseThrow(() -> new RuntimeException("Test result not found with ID: " + testId));
 
@@ -154,13 +154,7 @@ public class TestResultServiceImpl implements TestResultService {
             throw new RuntimeException("You don't have permission to access this patient's test results");
         }
 
-        ByteArrayResource resource = new ByteArrayResource(testResult.getPdfData());
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .contentLength(testResult.getFileSize())
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + testResult.getPdfFilename() + "\"")
-                .body(resource);
+        return toDownload(testResult);
     }
 
     @Override
@@ -211,78 +205,130 @@ public class TestResultServiceImpl implements TestResultService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public TestResultStatsDto getTestStatsByPatientId(String patientId) {
-        List<TestResult> allTests = testResultRepository.findByPatientIdOrderByUploadedAtDesc(patientId);
-        
-        long totalTests = allTests.size();
-        long completedTests = allTests.stream().mapToLong(t -> t.getStatus() == TestResult.TestStatus.COMPLETED ? 1 : 0).sum();
-        long reviewedTests = allTests.stream().mapToLong(t -> t.getStatus() == TestResult.TestStatus.REVIEWED ? 1 : 0).sum();
-        long cancelledTests = allTests.stream().mapToLong(t -> t.getStatus() == TestResult.TestStatus.CANCELLED ? 1 : 0).sum();
+        return toStats(testResultRepository.countStatsByPatientId(patientId, startOfMonth(), startOfYear()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TestResultStatsDto getTestStatsByTechnicianId(String technicianId) {
+        return toStats(testResultRepository.countStatsByTechnicianId(technicianId, startOfMonth(), startOfYear()));
+    }
+
+    /**
+     * Sum the per-test-type rows of a stats query; there is one row per distinct test type.
+     */
+    private TestResultStatsDto toStats(List<Object[]> rowsByTestType) {
+        long totalTests = 0;
+        long completedTests = 0;
+        long reviewedTests = 0;
+        long cancelledTests = 0;
+        long testsThisMonth = 0;
+        long testsThisYear = 0;
+        String mostFrequentTestType = "N/A";
+        long mostFrequentCount = 0;
+
+        for (Object[] row : rowsByTestType) {
+            long count = ((Number) row[1]).longValue();
+            totalTests += count;
+            completedTests += ((Number) row[2]).longValue();
+            reviewedTests += ((Number) row[3]).longValue();
+            cancelledTests += ((Number) row[4]).longValue();
+            testsThisMonth += ((Number) row[5]).longValue();
+            testsThisYear += ((Number) row[6]).longValue();
+            if (count > mostFrequentCount) {
+                mostFrequentCount = count;
+                mostFrequentTestType = (String) row[0];
+            }
+        }
 
         // Pending review = tests that are COMPLETED but not yet REVIEWED
         // This represents tests ready for doctor review
         long pendingTests = completedTests;
 
-        // Find most frequent test type
-        String mostFrequentTestType = allTests.stream()
-                .collect(Collectors.groupingBy(TestResult::getTestType, Collectors.counting()))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("N/A");
-
-        // Tests this month and year
-        LocalDateTime startOfMonth = YearMonth.now().atDay(1).atStartOfDay();
-        LocalDateTime startOfYear = LocalDateTime.now().withDayOfYear(1).withHour(0).withMinute(0).withSecond(0);
-        
-        long testsThisMonth = allTests.stream().mapToLong(t -> t.getUploadedAt().isAfter(startOfMonth) ? 1 : 0).sum();
-        long testsThisYear = allTests.stream().mapToLong(t -> t.getUploadedAt().isAfter(startOfYear) ? 1 : 0).sum();
-
-        return new TestResultStatsDto(totalTests, completedTests, pendingTests, reviewedTests, 
+        return new TestResultStatsDto(totalTests, completedTests, pendingTests, reviewedTests,
                                     cancelledTests, mostFrequentTestType, testsThisMonth, testsThisYear);
     }
 
-    @Override
-    public TestResultStatsDto getTestStatsByTechnicianId(String technicianId) {
-        List<TestResult> allTests = testResultRepository.findByTechnicianIdOrderByUploadedAtDesc(technicianId);
-        
-        long totalTests = allTests.size();
-        long completedTests = allTests.stream().mapToLong(t -> t.getStatus() == TestResult.TestStatus.COMPLETED ? 1 : 0).sum();
-        long reviewedTests = allTests.stream().mapToLong(t -> t.getStatus() == TestResult.TestStatus.REVIEWED ? 1 : 0).sum();
-        long cancelledTests = allTests.stream().mapToLong(t -> t.getStatus() == TestResult.TestStatus.CANCELLED ? 1 : 0).sum();
-        
-        // Pending review = tests that are COMPLETED (ready for review) but not yet REVIEWED
-        // This represents tests ready for doctor review
-        long pendingTests = completedTests;
-
-        // Find most frequent test type uploaded by this technician
-        String mostFrequentTestType = allTests.stream()
-                .collect(Collectors.groupingBy(TestResult::getTestType, Collectors.counting()))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("N/A");
-
-        // Tests uploaded this month and year
-        LocalDateTime startOfMonth = YearMonth.now().atDay(1).atStartOfDay();
-        LocalDateTime startOfYear = LocalDateTime.now().withDayOfYear(1).withHour(0).withMinute(0).withSecond(0);
-        
-        long testsThisMonth = allTests.stream().mapToLong(t -> t.getUploadedAt().isAfter(startOfMonth) ? 1 : 0).sum();
-        long testsThisYear = allTests.stream().mapToLong(t -> t.getUploadedAt().isAfter(startOfYear) ? 1 : 0).sum();
+    private static LocalDateTime startOfMonth() {
+        return YearMonth.now().atDay(1).atStartOfDay();
+    }
 
-        return new TestResultStatsDto(totalTests, completedTests, pendingTests, reviewedTests, 
-                                    cancelledTests, mostFrequentTestType, testsThisMonth, testsThisYear);
+    private static LocalDateTime startOfYear() {
+        return LocalDate.now().withDayOfYear(1).atStartOfDay();
     }
 
     @Override
-    public List<TestResultResponseDto> searchTestResults(String patientId, String doctorId, 
-                                                        String technicianId, String testType, 
-                                                        TestResult.TestStatus status) {
-        List<TestResult> testResults = testResultRepository.findTestResultsByCriteria(
-                patientId, doctorId, technicianId, testType, status);
-        return testResults.stream()
-                .map(TestResultResponseDto::new)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public TestResultSearchPageDto searchTestResults(String patientId, String doctorId,
+                                                     String technicianId, String testType,
+                                                     TestResult.TestStatus status,
+                                                     LocalDateTime uploadedFrom, LocalDateTime uploadedTo,
+                                                     String cursor, int size) {
+        // Only the filters that are set become predicates
+        List<Specification<TestResult>> filters = new ArrayList<>();
+        if (patientId != null) {
+            filters.add(TestResultSpecifications.hasPatientId(patientId));
+        }
+        if (doctorId != null) {
+            filters.add(TestResultSpecifications.hasDoctorId(doctorId));
+        }
+        if (technicianId != null) {
+            filters.add(TestResultSpecifications.hasTechnicianId(technicianId));
+        }
+        if (testType != null) {
+            filters.add(TestResultSpecifications.hasTestType(testType));
+        }
+        if (status != null) {
+            filters.add(TestResultSpecifications.hasStatus(status));
+        }
+        if (uploadedFrom != null) {
+            filters.add(TestResultSpecifications.uploadedFrom(uploadedFrom));
+        }
+        if (uploadedTo != null) {
+            filters.add(TestResultSpecifications.uploadedBefore(uploadedTo));
+        }
+        if (cursor != null) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            filters.add(TestResultSpecifications.after(position.timestamp(), position.id()));
+        }
+
+        // One extra row tells whether there is a next page without a count query
+        List<TestResult> rows = testResultRepository.findBy(Specification.allOf(filters), query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "uploadedAt", "testId"))
+                .project("patient", "doctor", "technician")
+                .limit(size + 1)
+                .all());
+
+        boolean hasMore = rows.size() > size;
+        List<TestResult> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            TestResult last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getUploadedAt(), last.getTestId()).encode();
+        }
+        return new TestResultSearchPageDto(
+                page.stream().map(TestResultResponseDto::new).collect(Collectors.toList()),
+                nextCursor);
+    }
+
+    private BlobDownload toDownload(TestResult testResult) {
+        if (testResult.getBlobRef() == null) {
+            // Uploaded before PDFs moved to the blob store and not migrated yet
+            byte[] legacyPdf = testResultRepository.findLegacyPdfData(testResult.getTestId());
+            if (legacyPdf == null) {
+                throw new RuntimeException("PDF not found for test result: " + testResult.getTestId());
+            }
+            return BlobDownload.ofContent(legacyPdf, testResult.getPdfFilename(), MediaType.APPLICATION_PDF_VALUE,
+                    "\"" + DigestUtils.md5DigestAsHex(legacyPdf) + "\"");
+        }
+        // Stored blobs are never rewritten, so the hash (or, for migrated rows, the reference) identifies the content
+        String etag = testResult.getContentHash() != null
+                ? testResult.getContentHash()
+                : DigestUtils.md5DigestAsHex(testResult.getBlobRef().getBytes(StandardCharsets.UTF_8));
+        return BlobDownload.ofBlob(testResult.getBlobRef(), testResult.getFileSize(), testResult.getPdfFilename(),
+                MediaType.APPLICATION_PDF_VALUE, "\"" + etag + "\"");
     }
 
     private boolean hasDownloadPermission(TestResult testResult, String userId) {
@@ -361,6 +407,29 @@ public class TestResultServiceImpl implements TestResultService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<TestResultResponseDto> searchReportContents(String patientId, String query) {
+        Set<Long> testIds = reportSearchIndex.search(patientId, query);
+        if (testIds.isEmpty()) {
+            return List.of();
+        }
+        return testResultRepository.findAllById(testIds).stream()
+                .filter(testResult -> patientId.equals(testResult.getPatientId()))
+                .sorted(Comparator.comparing(TestResult::getUploadedAt).reversed())
+                .map(TestResultResponseDto::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TestResultResponseDto> searchReportContentsForDoctor(String patientId, String doctorId, String query) {
+        if (!hasCompletedAppointmentWithPatient(doctorId, patientId)) {
+            throw new RuntimeException("You don't have permission to access this patient's test results");
+        }
+        return searchReportContents(patientId, query);
+    }
+
     private TestResultResponseDto convertToResponseDto(TestResult testResult) {
         return new TestResultResponseDto(testResult);
     }
@@ -1,5 +1,6 @@
 package com.pulseiq.service;
 
+import com.pulseiq.dto.TestResultBatchItemDto;
 import com.pulseiq.repository.PatientRepository;
 import com.pulseiq.repository.DoctorRepository;
 import com.pulseiq.repository.TechnicianRepository;
@@ -7,6 +8,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class TestResultValidationService {
@@ -69,19 +77,7 @@ public class TestResultValidationService {
             return ValidationResult.invalid("File must have .pdf extension");
         }
 
-        // Additional security check: validate file header
-        try {
-            byte[] fileHeader = new byte[4];
-            file.getInputStream().read(fileHeader);
-            
-            // PDF files start with %PDF
-            if (!(fileHeader[0] == 0x25 && fileHeader[1] == 0x50 && 
-                  fileHeader[2] == 0x44 && fileHeader[3] == 0x46)) {
-                return ValidationResult.invalid("File is not a valid PDF");
-            }
-        } catch (Exception e) {
-            return ValidationResult.invalid("Error validating file format");
-        }
+        // The %PDF header is checked while the upload is streamed to storage
 
         return ValidationResult.valid();
     }
@@ -178,6 +174,55 @@ public class TestResultValidationService {
         return ValidationResult.valid();
     }
 
+    /**
+     * Validate every item of a batch upload. Patient and doctor IDs of the whole batch are looked
+     * up with one query each; results are in the order of {@code items}.
+     */
+    public List<ValidationResult> validateBatchUpload(List<TestResultBatchItemDto> items,
+                                                      List<MultipartFile> files, String technicianId) {
+        if (!isValidTechnician(technicianId)) {
+            ValidationResult invalid = ValidationResult.invalid("Technician not found with ID: " + technicianId);
+            return items.stream().map(item -> invalid).collect(Collectors.toList());
+        }
+
+        Set<String> patientIds = items.stream()
+                .map(TestResultBatchItemDto::getPatientId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> doctorIds = items.stream()
+                .map(item -> item.getDoctorId() != null ? item.getDoctorId().trim() : "")
+                .filter(doctorId -> doctorId.matches("D\\d+"))
+                .collect(Collectors.toSet());
+        Set<String> existingPatients = patientIds.isEmpty()
+                ? Set.of() : new HashSet<>(patientRepository.findExistingPatientIds(patientIds));
+        Set<String> existingDoctors = doctorIds.isEmpty()
+                ? Set.of() : new HashSet<>(doctorRepository.findExistingDoctorIds(doctorIds));
+
+        List<ValidationResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            TestResultBatchItemDto item = items.get(i);
+            ValidationResult result = validateTestName(item.getTestName());
+            if (result.isValid()) {
+                result = validateTestType(item.getTestType());
+            }
+            if (result.isValid() && !existingPatients.contains(item.getPatientId())) {
+                result = ValidationResult.invalid("Patient not found with ID: " + item.getPatientId());
+            }
+            if (result.isValid() && item.getDoctorId() != null) {
+                // Same rule as single uploads: only IDs shaped like D+numbers are checked
+                String doctorId = item.getDoctorId().trim();
+                if (doctorId.matches("D\\d+") && !existingDoctors.contains(doctorId)) {
+                    result = ValidationResult.invalid("Doctor not found with ID: " + doctorId);
+                }
+            }
+            if (result.isValid()) {
+                result = validatePdfFile(files.get(i));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
     private boolean isAllowedMimeType(String mimeType) {
         for (String allowedType : ALLOWED_MIME_TYPES) {
             if (allowedType.equals(mimeType)) {
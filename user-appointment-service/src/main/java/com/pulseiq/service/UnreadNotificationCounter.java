@@ -0,0 +1,135 @@
+package com.pulseiq.service;
+
+import com.pulseiq.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unread notification counts held in memory per recipient. A count is loaded from the table the
+ * first time it is read and then moved by the writes that commit on this node. Every
+ * {@code app.notifications.unread-count-reconcile-ms} the cached counts are re-read in bulk,
+ * which corrects changes made by other replicas, and counts nobody has read for a while are dropped.
+ */
+@Slf4j
+@Component
+public class UnreadNotificationCounter {
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+    private static final long IDLE_EVICT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private final NotificationRepository notificationRepository;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reconciler;
+
+    public UnreadNotificationCounter(NotificationRepository notificationRepository,
+                                     @Value("${app.notifications.unread-count-reconcile-ms:60000}") long reconcileMillis) {
+        this.notificationRepository = notificationRepository;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "unread-count-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.warn("Unread count reconciliation failed: {}", e.getMessage());
+            }
+        }, reconcileMillis, reconcileMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    public long get(String recipientId) {
+        Counter counter = counters.get(recipientId);
+        if (counter == null) {
+            // Loaded outside the map so a slow query does not block other recipients
+            long count = notificationRepository.countByRecipientIdAndIsReadFalse(recipientId);
+            counter = counters.computeIfAbsent(recipientId, id -> new Counter(count));
+        }
+        counter.lastReadMillis = System.currentTimeMillis();
+        return counter.count.get();
+    }
+
+    /**
+     * Move the recipient's count by {@code delta} once the current transaction commits.
+     * Recipients whose count is not cached are left alone; their next read loads it.
+     */
+    public void adjustAfterCommit(String recipientId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            adjust(recipientId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                adjust(recipientId, delta);
+            }
+        });
+    }
+
+    void adjust(String recipientId, long delta) {
+        Counter counter = counters.get(recipientId);
+        if (counter != null) {
+            counter.count.updateAndGet(count -> Math.max(0, count + delta));
+        }
+    }
+
+    /**
+     * Drop idle counts and reset the rest to what the table holds.
+     */
+    void reconcile() {
+        long idleBefore = System.currentTimeMillis() - IDLE_EVICT_MILLIS;
+        counters.entrySet().removeIf(entry -> entry.getValue().lastReadMillis < idleBefore);
+
+        List<String> recipientIds = new ArrayList<>(counters.keySet());
+        for (int from = 0; from < recipientIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<String> batch = recipientIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, recipientIds.size()));
+            Map<String, Long> unread = new HashMap<>();
+            for (Object[] row : notificationRepository.countUnreadByRecipientIdIn(batch)) {
+                unread.put((String) row[0], ((Number) row[1]).longValue());
+            }
+            for (String recipientId : batch) {
+                Counter counter = counters.get(recipientId);
+                if (counter != null) {
+                    counter.count.set(unread.getOrDefault(recipientId, 0L));
+                }
+            }
+        }
+        log.debug("Reconciled {} unread notification counts", recipientIds.size());
+    }
+
+    int size() {
+        return counters.size();
+    }
+
+    private static final class Counter {
+
+        private final AtomicLong count;
+        private volatile long lastReadMillis = System.currentTimeMillis();
+
+        private Counter(long count) {
+            this.count = new AtomicLong(count);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.pulseiq.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What to send for a document download: either a blob reference or, for rows that predate the
+ * blob store, the content itself.
+ */
+@Getter
+@AllArgsConstructor
+public class BlobDownload {
+
+    private final String blobRef;
+    private final byte[] inlineContent;
+    private final Long size;
+    private final String fileName;
+    private final String contentType;
+    private final String etag; // quoted, strong
+
+    public static BlobDownload ofBlob(String blobRef, Long size, String fileName, String contentType, String etag) {
+        return new BlobDownload(blobRef, null, size, fileName, contentType, etag);
+    }
+
+    public static BlobDownload ofContent(byte[] content, String fileName, String contentType, String etag) {
+        return new BlobDownload(null, content, (long) content.length, fileName, contentType, etag);
+    }
+}
@@ -0,0 +1,69 @@
+package com.pulseiq.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point for blob content. New content goes to the configured store
+ * ({@code app.blob-store.type}: {@code filesystem} or {@code postgres}); if the filesystem is
+ * not writable it falls back to PostgreSQL large objects. Reads are routed by the reference's
+ * scheme, so content written by either store stays readable after a switch.
+ */
+@Slf4j
+@Service
+public class BlobStorageService {
+
+    private final Map<String, BlobStore> storesByScheme = new HashMap<>();
+    private final BlobStore primary;
+
+    public BlobStorageService(List<BlobStore> stores,
+                              @Value("${app.blob-store.type:filesystem}") String configuredType) {
+        stores.forEach(store -> storesByScheme.put(store.scheme(), store));
+
+        BlobStore preferred = "postgres".equalsIgnoreCase(configuredType)
+                ? storesByScheme.get(LargeObjectBlobStore.SCHEME)
+                : storesByScheme.get(FileSystemBlobStore.SCHEME);
+        if (preferred == null || !preferred.isAvailable()) {
+            log.warn("Blob store '{}' is not available, storing content as PostgreSQL large objects", configuredType);
+            preferred = storesByScheme.get(LargeObjectBlobStore.SCHEME);
+        }
+        log.info("Storing new blobs in the '{}' store", preferred.scheme());
+        this.primary = preferred;
+    }
+
+    public String put(InputStream content) throws IOException {
+        return primary.put(content);
+    }
+
+    public InputStream open(String reference) throws IOException {
+        return storeFor(reference).open(reference);
+    }
+
+    public long size(String reference) throws IOException {
+        return storeFor(reference).size(reference);
+    }
+
+    public void delete(String reference) {
+        try {
+            storeFor(reference).delete(reference);
+        } catch (Exception e) {
+            log.warn("Could not delete blob {}: {}", reference, e.getMessage());
+        }
+    }
+
+    public BlobStore storeFor(String reference) {
+        int separator = reference != null ? reference.indexOf(':') : -1;
+        BlobStore store = separator > 0 ? storesByScheme.get(reference.substring(0, separator)) : null;
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown blob reference: " + reference);
+        }
+        return store;
+    }
+}
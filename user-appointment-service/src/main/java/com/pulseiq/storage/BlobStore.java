@@ -0,0 +1,43 @@
+package com.pulseiq.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage for document content kept outside the entity rows. A store hands out opaque
+ * references of the form {@code <scheme>:<id>}; the owning row keeps only that reference.
+ */
+public interface BlobStore {
+
+    /**
+     * Prefix of the references created by this store, e.g. {@code fs}
+     */
+    String scheme();
+
+    /**
+     * Whether the store can accept writes in this deployment
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Copy the stream into the store and return the new reference
+     */
+    String put(InputStream content) throws IOException;
+
+    /**
+     * Open the content of a reference for reading; the caller closes the stream
+     */
+    InputStream open(String reference) throws IOException;
+
+    /**
+     * Size of the stored content in bytes
+     */
+    long size(String reference) throws IOException;
+
+    /**
+     * Remove the content of a reference; missing content is ignored
+     */
+    void delete(String reference) throws IOException;
+}
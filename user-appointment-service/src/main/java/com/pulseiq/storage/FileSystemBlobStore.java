@@ -0,0 +1,99 @@
+package com.pulseiq.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Blob store on the local filesystem. Content lives under {@code <dir>/<2-char fan-out>/<uuid>}
+ * and is written to a temporary file first, so a reference never points at a partial file.
+ */
+@Slf4j
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    static final String SCHEME = "fs";
+
+    private final Path baseDir;
+    private final Path tempDir;
+    private boolean available;
+
+    public FileSystemBlobStore(@Value("${app.blob-store.filesystem.dir:data/blobs}") String baseDir) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.tempDir = this.baseDir.resolve("tmp");
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            Files.createDirectories(tempDir);
+            available = Files.isWritable(baseDir);
+        } catch (IOException e) {
+            log.warn("Blob directory {} is not usable: {}", baseDir, e.getMessage());
+            available = false;
+        }
+    }
+
+    @Override
+    public String scheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        String id = UUID.randomUUID().toString();
+        String relative = id.substring(0, 2) + "/" + id;
+        Path target = baseDir.resolve(relative);
+        Files.createDirectories(target.getParent());
+
+        Path temp = Files.createTempFile(tempDir, id, ".part");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return SCHEME + ":" + relative;
+    }
+
+    @Override
+    public InputStream open(String reference) throws IOException {
+        return Files.newInputStream(resolve(reference));
+    }
+
+    @Override
+    public long size(String reference) throws IOException {
+        return Files.size(resolve(reference));
+    }
+
+    @Override
+    public void delete(String reference) throws IOException {
+        Files.deleteIfExists(resolve(reference));
+    }
+
+    /**
+     * Path of a stored blob, for callers that can serve files directly from disk.
+     */
+    public Path resolve(String reference) {
+        String relative = reference.substring(SCHEME.length() + 1);
+        Path path = baseDir.resolve(relative).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IllegalArgumentException("Invalid blob reference: " + reference);
+        }
+        return path;
+    }
+}
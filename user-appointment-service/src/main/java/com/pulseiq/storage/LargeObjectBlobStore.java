@@ -0,0 +1,203 @@
+package com.pulseiq.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Blob store backed by PostgreSQL large objects, for deployments without a persistent volume.
+ * Content is written and read in chunks through the server-side {@code lo_*} functions, so
+ * neither direction holds a whole document in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class LargeObjectBlobStore implements BlobStore {
+
+    static final String SCHEME = "lo";
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int INV_READ = 0x40000;
+
+    private final DataSource dataSource;
+
+    @Override
+    public String scheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long oid;
+                try (PreparedStatement create = connection.prepareStatement("SELECT lo_create(0)");
+                     ResultSet resultSet = create.executeQuery()) {
+                    resultSet.next();
+                    oid = resultSet.getLong(1);
+                }
+
+                byte[] buffer = new byte[CHUNK_SIZE];
+                long offset = 0;
+                try (PreparedStatement write = connection.prepareStatement("SELECT lo_put(CAST(? AS oid), ?, ?)")) {
+                    int read;
+                    while ((read = content.readNBytes(buffer, 0, buffer.length)) > 0) {
+                        write.setLong(1, oid);
+                        write.setLong(2, offset);
+                        write.setBytes(3, read == buffer.length ? buffer : Arrays.copyOf(buffer, read));
+                        write.execute();
+                        offset += read;
+                    }
+                }
+                connection.commit();
+                return SCHEME + ":" + oid;
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to store large object", e);
+        }
+    }
+
+    @Override
+    public InputStream open(String reference) throws IOException {
+        return new LargeObjectInputStream(oid(reference));
+    }
+
+    @Override
+    public long size(String reference) throws IOException {
+        // The descriptor opened here is closed when the transaction ends
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT lo_lseek64(lo_open(CAST(? AS oid), " + INV_READ + "), 0, 2)")) {
+            connection.setAutoCommit(false);
+            statement.setLong(1, oid(reference));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                long size = resultSet.getLong(1);
+                connection.rollback();
+                return size;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to read large object size for " + reference, e);
+        }
+    }
+
+    @Override
+    public void delete(String reference) throws IOException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT lo_unlink(CAST(? AS oid))")) {
+            connection.setAutoCommit(false);
+            statement.setLong(1, oid(reference));
+            statement.execute();
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Failed to delete large object " + reference, e);
+        }
+    }
+
+    private static long oid(String reference) {
+        return Long.parseLong(reference.substring(SCHEME.length() + 1));
+    }
+
+    /**
+     * Reads a large object one chunk per round trip; a connection is only held during a fetch.
+     */
+    private class LargeObjectInputStream extends InputStream {
+
+        private final long oid;
+        private long offset;
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean finished;
+        private long length = -1;
+
+        LargeObjectInputStream(long oid) {
+            this.oid = oid;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Seek past the skipped bytes instead of fetching them, so a Range request starts reading
+         * at its first byte. {@code lo_get} reads from any offset; the object's length, taken once
+         * with {@code lo_lseek64}, bounds the skip.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            long buffered = Math.min(n, chunk.length - position);
+            position += (int) buffered;
+            if (buffered == n || finished) {
+                return buffered;
+            }
+            if (length < 0) {
+                length = size(SCHEME + ":" + oid);
+            }
+            long skipped = Math.min(n - buffered, Math.max(length - offset, 0));
+            offset += skipped;
+            finished = offset >= length;
+            return buffered + skipped;
+        }
+
+        private boolean fill() throws IOException {
+            if (position < chunk.length) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT lo_get(CAST(? AS oid), ?, ?)")) {
+                statement.setLong(1, oid);
+                statement.setLong(2, offset);
+                statement.setInt(3, CHUNK_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    byte[] next = resultSet.getBytes(1);
+                    chunk = next != null ? next : new byte[0];
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                throw new IOException("Failed to read large object " + oid, e);
+            }
+            position = 0;
+            offset += chunk.length;
+            finished = chunk.length < CHUNK_SIZE;
+            return chunk.length > 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.pulseiq.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Wraps an uploaded file on its way into the blob store: the first bytes must be the
+ * {@code %PDF} header and everything read is hashed with SHA-256, so validation, hashing and
+ * storing take a single pass over the upload.
+ */
+public class PdfUploadStream extends FilterInputStream {
+
+    private static final byte[] PDF_HEADER = {0x25, 0x50, 0x44, 0x46};
+
+    private final MessageDigest digest;
+    private long position;
+
+    public PdfUploadStream(InputStream in) {
+        super(in);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            accept(new byte[]{(byte) value}, 0, 1);
+        } else {
+            checkComplete();
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            accept(b, off, read);
+        } else if (read < 0) {
+            checkComplete();
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Every byte has to go through the digest
+        throw new IOException("skip is not supported on an upload stream");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Hex SHA-256 of the content read so far; call once the stream has been consumed.
+     */
+    public String getContentHash() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public long getBytesRead() {
+        return position;
+    }
+
+    private void accept(byte[] b, int off, int len) throws InvalidPdfException {
+        for (int i = 0; position + i < PDF_HEADER.length && i < len; i++) {
+            if (b[off + i] != PDF_HEADER[(int) position + i]) {
+                throw new InvalidPdfException();
+            }
+        }
+        digest.update(b, off, len);
+        position += len;
+    }
+
+    private void checkComplete() throws InvalidPdfException {
+        if (position < PDF_HEADER.length) {
+            throw new InvalidPdfException();
+        }
+    }
+
+    /**
+     * The content does not start with a PDF header.
+     */
+    public static class InvalidPdfException extends IOException {
+        public InvalidPdfException() {
+            super("File is not a valid PDF");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.pulseiq.controller;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import org.mockito.Mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.pulseiq.dto.PrescriptionDto;
+import com.pulseiq.service.PrescriptionPdfCache;
+import com.pulseiq.service.PrescriptionPdfRenderer;
+import com.pulseiq.service.PrescriptionPdfService;
+import com.pulseiq.service.PrescriptionService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class PrescriptionControllerTest {
+
+        @Mock
+        private PrescriptionService prescriptionService;
+
+        @Mock
+        private PrescriptionPdfService pdfService;
+
+        @TempDir
+        Path cacheDir;
+
+        private final CountDownLatch renderersReleased = new CountDownLatch(1);
+
+        private PrescriptionPdfRenderer pdfRenderer;
+
+        private MockMvc mockMvc;
+
+        @BeforeEach
+        void setUp() throws Exception {
+                PrescriptionPdfCache pdfCache = new PrescriptionPdfCache(pdfService, cacheDir.toString(), 1 << 20, 1 << 20);
+                // One renderer and one queue slot
+                pdfRenderer = new PrescriptionPdfRenderer(pdfService, pdfCache, new SimpleMeterRegistry(), 1, 1);
+                mockMvc = MockMvcBuilders.standaloneSetup(new PrescriptionController(prescriptionService, pdfRenderer)).build();
+
+                when(prescriptionService.getPrescriptionById(anyLong())).thenAnswer(invocation -> {
+                        PrescriptionDto prescription = new PrescriptionDto();
+                        prescription.setPrescriptionId(invocation.getArgument(0));
+                        return Optional.of(prescription);
+                });
+                when(prescriptionService.getPrescriptionSequenceNumber(any())).thenReturn(1);
+                when(pdfService.generatePrescriptionPdf(any(), anyInt())).thenAnswer(invocation -> {
+                        renderersReleased.await(5, TimeUnit.SECONDS);
+                        return new byte[] {'%', 'P', 'D', 'F'};
+                });
+        }
+
+        @AfterEach
+        void tearDown() {
+                renderersReleased.countDown();
+        }
+
+        @Test
+        void downloadPrescriptionPdf_ReturnsServiceUnavailableWhenRenderersAreFull() throws Exception {
+                MvcResult rendering = mockMvc.perform(get("/api/prescriptions/1/pdf"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                verify(pdfService, timeout(2000)).generatePrescriptionPdf(any(), anyInt());
+                MvcResult queued = mockMvc.perform(get("/api/prescriptions/2/pdf"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                MvcResult rejected = mockMvc.perform(get("/api/prescriptions/3/pdf")).andReturn();
+                mockMvc.perform(asyncDispatch(rejected))
+                                .andExpect(status().isServiceUnavailable())
+                                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+
+                renderersReleased.countDown();
+                mockMvc.perform(asyncDispatch(rendering)).andExpect(status().isOk());
+                mockMvc.perform(asyncDispatch(queued)).andExpect(status().isOk());
+        }
+}
@@ -0,0 +1,89 @@
+package com.pulseiq.otp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalOtpStoreTest {
+
+    private final OtpHasher hasher = new OtpHasher("test-secret");
+    private final LocalOtpStore store = new LocalOtpStore(hasher);
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void matches_ChecksCodeDoctorAndTestType() {
+        store.put("P1_D1_BLOOD", OtpEntry.issue(hasher, "123456", "P1", "D1", "BLOOD", Duration.ofMinutes(10)));
+
+        assertTrue(store.matches("P1_D1_BLOOD", "123456", "D1", "BLOOD"));
+        assertFalse(store.matches("P1_D1_BLOOD", "654321", "D1", "BLOOD"));
+        assertFalse(store.matches("P1_D1_BLOOD", "123456", "D2", "BLOOD"));
+        assertFalse(store.matches("P1_D1_BLOOD", "123456", "D1", "ALL"));
+        assertFalse(store.matches("P1_D2", "123456", "D1", "BLOOD"));
+    }
+
+    @Test
+    void remove_SucceedsOnlyOnce() {
+        store.put("P1_D1", OtpEntry.issue(hasher, "123456", "P1", "D1", "ALL", Duration.ofMinutes(10)));
+
+        assertTrue(store.remove("P1_D1"));
+        assertFalse(store.remove("P1_D1"));
+        assertFalse(store.matches("P1_D1", "123456", "D1", "ALL"));
+    }
+
+    @Test
+    void consume_RemovesOnlyAMatchingEntry() {
+        store.put("P1_D1", OtpEntry.issue(hasher, "123456", "P1", "D1", "ALL", Duration.ofMinutes(10)));
+
+        assertFalse(store.consume("P1_D1", "654321", "D1", "ALL"));
+        assertTrue(store.consume("P1_D1", "123456", "D1", "ALL"));
+        assertFalse(store.consume("P1_D1", "123456", "D1", "ALL"));
+    }
+
+    @Test
+    void issue_KeysTheStoredHashWithTheSecret() {
+        OtpEntry entry = OtpEntry.issue(hasher, "123456", "P1", "D1", "ALL", Duration.ofMinutes(10));
+
+        assertNotEquals(new OtpHasher("other-secret").hash("123456"), entry.codeHash());
+        assertFalse(entry.matches(new OtpHasher("other-secret"), "123456", "D1", "ALL", Instant.now()));
+    }
+
+    @Test
+    void expire_DropsExpiredEntriesButKeepsReissuedOnes() {
+        store.put("P1_D1", OtpEntry.issue(hasher, "111111", "P1", "D1", "ALL", Duration.ofSeconds(5)));
+        store.put("P2_D1", OtpEntry.issue(hasher, "222222", "P2", "D1", "ALL", Duration.ofSeconds(5)));
+        store.put("P2_D1", OtpEntry.issue(hasher, "333333", "P2", "D1", "ALL", Duration.ofMinutes(10)));
+
+        store.expire(Instant.now().plusSeconds(30));
+
+        assertEquals(1, store.size());
+        assertTrue(store.matches("P2_D1", "333333", "D1", "ALL"));
+    }
+
+    @Test
+    void wheel_FiresOnlyDueTimeoutsAcrossRounds() {
+        HashedTimerWheel wheel = new HashedTimerWheel(1000, 8, 0);
+        wheel.schedule("soon", 3_000);
+        wheel.schedule("next-round", 11_000); // same slot as "soon" one revolution later
+        wheel.schedule("overdue", 0);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(3_500, fired::add);
+        assertEquals(List.of("overdue", "soon"), fired);
+        assertEquals(1, wheel.pending());
+
+        fired.clear();
+        wheel.advance(60_000, fired::add);
+        assertEquals(List.of("next-round"), fired);
+        assertEquals(0, wheel.pending());
+    }
+}
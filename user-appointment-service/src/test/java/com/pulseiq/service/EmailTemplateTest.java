@@ -0,0 +1,45 @@
+package com.pulseiq.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateTest {
+
+    @Test
+    void render_FillsSlotsBetweenStaticSegments() {
+        EmailTemplate template = EmailTemplate.compile("Dear {{name}}, your code is {{ otp }}. Bye {{name}}", false);
+
+        byte[] rendered = template.render(Map.of("name", "Rahim", "otp", "123456"));
+
+        assertEquals("Dear Rahim, your code is 123456. Bye Rahim", new String(rendered, StandardCharsets.UTF_8));
+        assertEquals(Set.of("name", "otp"), template.variables());
+    }
+
+    @Test
+    void render_EscapesValuesInHtmlTemplates() {
+        EmailTemplate template = EmailTemplate.compile("<p>🩺 Dear {{name}}</p>", true);
+
+        byte[] rendered = template.render(Map.of("name", "<b>Tom & \"Jerry\"</b>"));
+
+        assertEquals("<p>🩺 Dear &lt;b&gt;Tom &amp; &quot;Jerry&quot;&lt;/b&gt;</p>",
+                new String(rendered, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void render_RejectsMissingValues() {
+        EmailTemplate template = EmailTemplate.compile("Code: {{otp}}", false);
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of()));
+    }
+
+    @Test
+    void compile_RejectsMalformedSlots() {
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("Code: {{otp", false));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("Code: {{1otp}}", false));
+    }
+}
@@ -0,0 +1,47 @@
+package com.pulseiq.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabSeriesPointsTest {
+
+    @Test
+    void put_KeepsPointsOrderedAndReplacesByTest() {
+        LabSeriesPoints points = new LabSeriesPoints();
+        points.put(10L, 3_000L, 6.4);
+        points.put(11L, 1_000L, 7.2);
+        points.put(12L, 2_000L, 6.9);
+        points.put(10L, 4_000L, 6.1);
+
+        assertEquals(3, points.size());
+        assertEquals(11L, points.testId(0));
+        assertEquals(12L, points.testId(1));
+        assertEquals(10L, points.testId(2));
+        assertEquals(6.1, points.value(2));
+        assertEquals(1, points.lowerBound(1_500L));
+    }
+
+    @Test
+    void encode_RoundTrips() {
+        LabSeriesPoints points = new LabSeriesPoints();
+        points.put(500L, 1_700_000_000L, 98.5);
+        points.put(42L, 1_710_000_000L, 101.0);
+        points.put(9_000L, 1_720_000_000L, 95.25);
+
+        LabSeriesPoints decoded = LabSeriesPoints.decode(points.encode());
+
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(points.time(i), decoded.time(i));
+            assertEquals(points.testId(i), decoded.testId(i));
+            assertEquals(points.value(i), decoded.value(i));
+        }
+    }
+
+    @Test
+    void decode_EmptyData() {
+        assertEquals(0, LabSeriesPoints.decode(null).size());
+        assertEquals(0, LabSeriesPoints.decode(new LabSeriesPoints().encode()).size());
+    }
+}
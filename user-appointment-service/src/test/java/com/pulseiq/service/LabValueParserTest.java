@@ -0,0 +1,48 @@
+package com.pulseiq.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabValueParserTest {
+
+    private final LabValueParser parser = new LabValueParser();
+
+    @Test
+    void parse_FindsKnownAnalytes() {
+        String report = """
+                Glycated Hemoglobin (HbA1c) ...... 6.1 %
+                Fasting Glucose : 98 mg/dL   (70 - 100)
+                HDL Cholesterol   52 mg/dL
+                Total Cholesterol 189 mg/dL
+                Serum Creatinine  1.1 mg/dL
+                """;
+
+        Map<String, Double> values = parser.parse(report).stream()
+                .collect(Collectors.toMap(LabValueParser.ParsedValue::analyte, LabValueParser.ParsedValue::value));
+
+        assertEquals(6.1, values.get("hba1c"));
+        assertEquals(98.0, values.get("glucose"));
+        assertEquals(52.0, values.get("hdl"));
+        assertEquals(189.0, values.get("cholesterol"));
+        assertEquals(1.1, values.get("creatinine"));
+        assertFalse(values.containsKey("hemoglobin"));
+    }
+
+    @Test
+    void parse_IgnoresTextWithoutValues() {
+        List<LabValueParser.ParsedValue> parsed = parser.parse("Patient advised to repeat creatinine test.");
+
+        assertTrue(parsed.isEmpty());
+    }
+
+    @Test
+    void normalize_StripsCaseAndPunctuation() {
+        assertEquals("hba1c", LabValueParser.normalize("HbA1c"));
+        assertEquals("ldlcholesterol", LabValueParser.normalize("LDL-Cholesterol"));
+    }
+}
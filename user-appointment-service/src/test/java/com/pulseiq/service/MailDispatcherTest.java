@@ -0,0 +1,200 @@
+package com.pulseiq.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailDispatcherTest {
+
+    private FakeSmtpServer server;
+    private MailDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void submit_SendsEveryMessageOverPooledConnections() throws Exception {
+        server = new FakeSmtpServer(false);
+        JavaMailSenderImpl mailSender = mailSender(server.port());
+        dispatcher = new MailDispatcher(mailSender, 2, 20, 60_000);
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(dispatcher.submit(message(mailSender, "patient" + i + "@example.com")));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertEquals(10, server.messages());
+        assertTrue(server.connections() <= 2, "opened " + server.connections() + " connections");
+        assertEquals(10L, dispatcher.getStats().get("sent"));
+        assertEquals(0L, dispatcher.getStats().get("failed"));
+    }
+
+    @Test
+    void send_ReconnectsWhenServerDropsConnection() throws Exception {
+        server = new FakeSmtpServer(true);
+        JavaMailSenderImpl mailSender = mailSender(server.port());
+        dispatcher = new MailDispatcher(mailSender, 1, 20, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.send(message(mailSender, "patient" + i + "@example.com"));
+        }
+
+        assertEquals(3, server.messages());
+        assertEquals(3, server.connections());
+        assertEquals(3L, dispatcher.getStats().get("sent"));
+    }
+
+    @Test
+    void send_KeepsConnectionWhenServerRejectsMessage() throws Exception {
+        server = new FakeSmtpServer(false);
+        JavaMailSenderImpl mailSender = mailSender(server.port());
+        dispatcher = new MailDispatcher(mailSender, 1, 20, 60_000);
+
+        assertThrows(MessagingException.class,
+                () -> dispatcher.send(message(mailSender, FakeSmtpServer.REJECTED_RECIPIENT)));
+        dispatcher.send(message(mailSender, "patient@example.com"));
+
+        assertEquals(1, server.messages());
+        assertEquals(1, server.connections());
+        assertEquals(1L, dispatcher.getStats().get("failed"));
+    }
+
+    private static JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.auth", "false");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        return mailSender;
+    }
+
+    private static MimeMessage message(JavaMailSenderImpl mailSender, String to) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setFrom("noreply@pulseiq.com");
+        helper.setTo(to);
+        helper.setSubject("Test");
+        helper.setText("<p>Hello</p>", true);
+        return message;
+    }
+
+    /**
+     * Minimal SMTP server that accepts every message except those to {@link #REJECTED_RECIPIENT}.
+     * With {@code dropAfterMessage} it closes the connection after each message without telling
+     * the client.
+     */
+    private static class FakeSmtpServer implements AutoCloseable {
+
+        static final String REJECTED_RECIPIENT = "unknown@example.com";
+
+        private final ServerSocket serverSocket;
+        private final boolean dropAfterMessage;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+
+        FakeSmtpServer(boolean dropAfterMessage) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.dropAfterMessage = dropAfterMessage;
+            Thread acceptor = new Thread(this::accept, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        int messages() {
+            return messages.get();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase(Locale.ROOT);
+                    if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                        reply(out, "250 localhost");
+                    } else if (command.startsWith("RCPT") && line.contains(REJECTED_RECIPIENT)) {
+                        reply(out, "550 No such user");
+                    } else if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Message content is not checked
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK");
+                        if (dropAfterMessage) {
+                            return;
+                        }
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
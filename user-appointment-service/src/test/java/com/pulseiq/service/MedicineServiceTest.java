@@ -0,0 +1,131 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.dto.MedicineDto;
+import com.pulseiq.entity.Medicine;
+import com.pulseiq.repository.CatalogVersionRepository;
+import com.pulseiq.repository.MedicineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MedicineServiceTest {
+
+    @Mock
+    private MedicineRepository medicineRepository;
+
+    @Mock
+    private CatalogVersionRepository catalogVersionRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MedicineService medicineService;
+
+    @BeforeEach
+    void setUp() {
+        medicineService = new MedicineService(medicineRepository, catalogVersionRepository, objectMapper);
+    }
+
+    @Test
+    void getCatalogSnapshot_ComputesFacetsInOneQuery() throws Exception {
+        // Arrange
+        when(medicineRepository.findByIsActiveTrueOrderByMedicineNameAsc()).thenReturn(Arrays.asList(
+            medicine(1L, "Amoxicillin", "Antibiotic"),
+            medicine(2L, "Azithromycin", "Antibiotic"),
+            medicine(3L, "ibuprofen", "Pain Relief")
+        ));
+
+        // Act
+        MedicineCatalogSnapshot snapshot = medicineService.getCatalogSnapshot();
+        List<String> categories = medicineService.getAllCategories();
+        List<String> letters = medicineService.getAllFirstLetters();
+        List<MedicineDto> medicines = medicineService.getAllActiveMedicines();
+
+        // Assert
+        assertEquals(3, medicines.size());
+        assertEquals(Arrays.asList("Antibiotic", "Pain Relief"), categories);
+        assertEquals(Arrays.asList("A", "I"), letters);
+        assertEquals(2L, snapshot.getCategoryCounts().get("Antibiotic"));
+        assertEquals(2L, snapshot.getLetterCounts().get("A"));
+        assertTrue(snapshot.getEtag().startsWith("\""));
+
+        JsonNode json = objectMapper.readTree(snapshot.getJson());
+        assertEquals(3, json.get("medicines").size());
+        assertEquals(1, json.get("letterCounts").get("I").asInt());
+
+        verify(medicineRepository, times(1)).findByIsActiveTrueOrderByMedicineNameAsc();
+    }
+
+    @Test
+    void deleteMedicine_RebuildsSnapshotOnNextRead() {
+        // Arrange
+        Medicine amoxicillin = medicine(1L, "Amoxicillin", "Antibiotic");
+        when(medicineRepository.findByIsActiveTrueOrderByMedicineNameAsc())
+            .thenReturn(List.of(amoxicillin, medicine(2L, "Ibuprofen", "Pain Relief")))
+            .thenReturn(List.of(medicine(2L, "Ibuprofen", "Pain Relief")));
+        when(medicineRepository.findById(1L)).thenReturn(Optional.of(amoxicillin));
+        when(medicineRepository.save(any(Medicine.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(catalogVersionRepository.findVersion(MedicineService.CATALOG_NAME))
+            .thenReturn(Optional.of(1L))
+            .thenReturn(Optional.of(2L));
+
+        MedicineCatalogSnapshot before = medicineService.getCatalogSnapshot();
+
+        // Act
+        medicineService.deleteMedicine(1L);
+        MedicineCatalogSnapshot after = medicineService.getCatalogSnapshot();
+
+        // Assert
+        assertNotEquals(before.getEtag(), after.getEtag());
+        assertEquals(List.of("Pain Relief"), after.getCategories());
+        assertSame(after, medicineService.getCatalogSnapshot());
+        verify(catalogVersionRepository).nextVersion(MedicineService.CATALOG_NAME);
+        verify(medicineRepository, times(2)).findByIsActiveTrueOrderByMedicineNameAsc();
+    }
+
+    @Test
+    void getCatalogSnapshot_RebuildsWhenAnotherReplicaBumpedTheVersion() {
+        // Arrange
+        ReflectionTestUtils.setField(medicineService, "versionCheckMillis", 0L);
+        when(medicineRepository.findByIsActiveTrueOrderByMedicineNameAsc())
+            .thenReturn(List.of(medicine(1L, "Amoxicillin", "Antibiotic")))
+            .thenReturn(List.of(medicine(1L, "Amoxicillin", "Antibiotic"), medicine(2L, "Ibuprofen", "Pain Relief")));
+        when(catalogVersionRepository.findVersion(MedicineService.CATALOG_NAME))
+            .thenReturn(Optional.of(4L))
+            .thenReturn(Optional.of(4L))
+            .thenReturn(Optional.of(5L));
+
+        // Act
+        MedicineCatalogSnapshot first = medicineService.getCatalogSnapshot();
+        MedicineCatalogSnapshot unchanged = medicineService.getCatalogSnapshot();
+        MedicineCatalogSnapshot rebuilt = medicineService.getCatalogSnapshot();
+
+        // Assert
+        assertSame(first, unchanged);
+        assertEquals(5L, rebuilt.getVersion());
+        assertEquals(2, rebuilt.getMedicines().size());
+    }
+
+    private Medicine medicine(Long id, String name, String category) {
+        Medicine medicine = new Medicine();
+        medicine.setMedicineId(id);
+        medicine.setMedicineName(name);
+        medicine.setMedicinePower("500mg");
+        medicine.setCategory(category);
+        medicine.setIsActive(true);
+        return medicine;
+    }
+}
@@ -0,0 +1,107 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.entity.EmailOutbox;
+import com.pulseiq.entity.Notification;
+import com.pulseiq.entity.Patient;
+import com.pulseiq.entity.User;
+import com.pulseiq.repository.PatientRepository;
+import com.pulseiq.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDigestServiceTest {
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private NotificationDigestService digestService;
+
+    @BeforeEach
+    void setUp() {
+        digestService = new NotificationDigestService(emailOutboxService, userRepository, patientRepository,
+                objectMapper, transactionManager, true, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        digestService.shutdown();
+    }
+
+    @Test
+    void addAfterCommit_CoalescesRecipientNotificationsIntoOneEmail() throws Exception {
+        User user = new User();
+        user.setEmail("patient@example.com");
+        when(userRepository.findByUserId("PAT001")).thenReturn(Optional.of(user));
+        Patient patient = new Patient();
+        patient.setFirstName("Ayesha");
+        patient.setLastName("Rahman");
+        when(patientRepository.findByPatientId("PAT001")).thenReturn(Optional.of(patient));
+
+        digestService.addAfterCommit(notification("Appointment Confirmed", Notification.NotificationType.APPOINTMENT_BOOKED, null));
+        digestService.addAfterCommit(notification("New Prescription Available", Notification.NotificationType.GENERAL, "PRESCRIPTION"));
+        digestService.addAfterCommit(notification("Test Result Available", Notification.NotificationType.TEST_RESULT_UPLOADED, "TEST_RESULT"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> params = ArgumentCaptor.forClass(Map.class);
+        verify(emailOutboxService, timeout(2000)).enqueue(eq(EmailOutbox.EmailType.NOTIFICATION_DIGEST),
+                eq("patient@example.com"), eq("Ayesha Rahman"), params.capture());
+        List<Map<String, String>> items = objectMapper.readValue(params.getValue().get("items"), new TypeReference<>() {});
+        assertEquals(3, items.size());
+        assertEquals("Appointment Confirmed", items.get(0).get("title"));
+        assertEquals(0, digestService.pendingRecipients());
+    }
+
+    @Test
+    void addAfterCommit_IgnoresNotificationsThatAreNotEmailed() {
+        Notification otp = notification("Test Result Access Request", Notification.NotificationType.SYSTEM_NOTIFICATION, "OTP");
+        Notification doctor = notification("New Appointment Booked", Notification.NotificationType.APPOINTMENT_BOOKED, null);
+        doctor.setRecipientType("DOCTOR");
+
+        digestService.addAfterCommit(otp);
+        digestService.addAfterCommit(doctor);
+
+        assertEquals(0, digestService.pendingRecipients());
+        verifyNoInteractions(emailOutboxService);
+    }
+
+    private static Notification notification(String title, Notification.NotificationType type, String relatedEntityType) {
+        Notification notification = new Notification();
+        notification.setRecipientId("PAT001");
+        notification.setRecipientType("PATIENT");
+        notification.setTitle(title);
+        notification.setMessage(title + " details");
+        notification.setType(type);
+        notification.setRelatedEntityType(relatedEntityType);
+        notification.setCreatedAt(LocalDateTime.of(2026, 10, 18, 9, 30));
+        return notification;
+    }
+}
@@ -0,0 +1,139 @@
+package com.pulseiq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulseiq.entity.Notification;
+import com.pulseiq.entity.NotificationOutbox;
+import com.pulseiq.repository.NotificationOutboxRepository;
+import com.pulseiq.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationWriteBehindTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Mock
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Mock
+    private NotificationStreamService notificationStreamService;
+
+    @Mock
+    private NotificationDigestService notificationDigestService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AtomicInteger written = new AtomicInteger();
+    private final Map<Long, NotificationOutbox> outbox = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(notificationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Notification> batch = invocation.getArgument(0);
+            written.addAndGet(batch.size());
+            return batch;
+        });
+        AtomicLong ids = new AtomicLong();
+        lenient().when(notificationOutboxRepository.save(any(NotificationOutbox.class))).thenAnswer(invocation -> {
+            NotificationOutbox row = invocation.getArgument(0);
+            row.setOutboxId(ids.incrementAndGet());
+            outbox.put(row.getOutboxId(), row);
+            return row;
+        });
+        lenient().when(notificationOutboxRepository.findByIdsForUpdate(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> requested = invocation.getArgument(0);
+            return requested.stream().map(outbox::get).toList();
+        });
+        lenient().doAnswer(invocation -> {
+            Iterable<NotificationOutbox> rows = invocation.getArgument(0);
+            rows.forEach(row -> outbox.remove(row.getOutboxId()));
+            return null;
+        }).when(notificationOutboxRepository).deleteAllInBatch(anyList());
+    }
+
+    @Test
+    void enqueue_WritesQueuedNotificationsInBatches() throws Exception {
+        NotificationWriteBehind writeBehind = writeBehind(10, 50);
+        try {
+            for (int i = 0; i < 10; i++) {
+                writeBehind.enqueue(notification("PAT00" + i));
+            }
+
+            verify(notificationRepository, timeout(2000).atLeastOnce()).saveAll(anyList());
+            verify(unreadNotificationCounter, timeout(2000).times(10)).adjustAfterCommit(anyString(), eq(1L));
+            assertEquals(10, written.get());
+            verify(notificationRepository, atMost(2)).saveAll(anyList());
+            assertTrue(outbox.isEmpty());
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    void shutdown_WritesWhatIsStillQueued() throws Exception {
+        NotificationWriteBehind writeBehind = writeBehind(100, 60_000);
+        writeBehind.enqueue(notification("PAT001"));
+        writeBehind.enqueue(notification("PAT002"));
+
+        writeBehind.shutdown();
+
+        assertEquals(2, written.get());
+        assertEquals(0, writeBehind.pending());
+        assertTrue(outbox.isEmpty());
+        verify(notificationStreamService).publish(eq("PAT001"), any());
+    }
+
+    @Test
+    void flush_KeepsOutboxRowsWhenTheWriteFails() throws Exception {
+        when(notificationRepository.saveAll(anyList())).thenThrow(new RuntimeException("connection reset"));
+        NotificationWriteBehind writeBehind = writeBehind(100, 60_000);
+        writeBehind.enqueue(notification("PAT001"));
+
+        writeBehind.shutdown();
+
+        assertEquals(1, outbox.size());
+        verifyNoInteractions(unreadNotificationCounter);
+    }
+
+    private NotificationWriteBehind writeBehind(int batchSize, long flushIntervalMillis) {
+        return new NotificationWriteBehind(notificationRepository, notificationOutboxRepository,
+                unreadNotificationCounter, notificationStreamService, notificationDigestService, objectMapper,
+                transactionManager, batchSize, flushIntervalMillis, 100, 60_000);
+    }
+
+    private static Notification notification(String recipientId) {
+        Notification notification = new Notification();
+        notification.setRecipientId(recipientId);
+        notification.setRecipientType("PATIENT");
+        notification.setTitle("Appointment Confirmed");
+        notification.setMessage("Your appointment has been booked.");
+        notification.setType(Notification.NotificationType.APPOINTMENT_BOOKED);
+        return notification;
+    }
+}
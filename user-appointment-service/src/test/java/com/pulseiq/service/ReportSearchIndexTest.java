@@ -0,0 +1,64 @@
+package com.pulseiq.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportSearchIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void search_MatchesAllWordsAndPrefixes() {
+        ReportSearchIndex index = newIndex();
+        index.index("P1", 1L, "HbA1c: 6.1 %  Fasting glucose 98 mg/dL");
+        index.index("P1", 2L, "Serum creatinine 1.1 mg/dL");
+
+        assertEquals(Set.of(1L), index.search("P1", "hba1c"));
+        assertEquals(Set.of(2L), index.search("P1", "Creat"));
+        assertEquals(Set.of(1L, 2L), index.search("P1", "mg/dL"));
+        assertTrue(index.search("P1", "creatinine glucose").isEmpty());
+    }
+
+    @Test
+    void search_IsScopedToPatient() {
+        ReportSearchIndex index = newIndex();
+        index.index("P1", 1L, "creatinine");
+
+        assertTrue(index.search("P2", "creatinine").isEmpty());
+    }
+
+    @Test
+    void index_ReplacesAndRemovesReports() {
+        ReportSearchIndex index = newIndex();
+        index.index("P1", 1L, "creatinine");
+        index.index("P1", 1L, "cholesterol");
+
+        assertTrue(index.search("P1", "creatinine").isEmpty());
+        assertEquals(Set.of(1L), index.search("P1", "cholesterol"));
+
+        index.remove("P1", 1L);
+        assertFalse(index.contains("P1", 1L));
+    }
+
+    @Test
+    void index_IsReloadedFromDisk() {
+        newIndex().index("P1", 7L, "Thyroid TSH 2.5");
+
+        ReportSearchIndex reopened = newIndex();
+
+        assertTrue(reopened.contains("P1", 7L));
+        assertEquals(Set.of(7L), reopened.search("P1", "tsh"));
+    }
+
+    private ReportSearchIndex newIndex() {
+        ReportSearchIndex index = new ReportSearchIndex(indexDir.toString(), 10);
+        index.init();
+        return index;
+    }
+}
@@ -2,38 +2,68 @@ package com.pulseiq.service;
 
 import com.pulseiq.dto.TestResultUploadDto;
 import com.pulseiq.dto.TestResultResponseDto;
+import com.pulseiq.dto.TestResultStatsDto;
 import com.pulseiq.entity.TestResult;
+import com.pulseiq.repository.AppointmentRepository;
 import com.pulseiq.repository.TestResultRepository;
+import com.pulseiq.storage.BlobStorageService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class TestResultServiceImplTest {
 
+    private static final byte[] PDF_CONTENT = "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII);
+
     @Mock
     private TestResultRepository testResultRepository;
     
     @Mock
     private TestResultValidationService validationService;
     
+    @Mock
+    private BlobStorageService blobStorageService;
+    
+    @Mock
+    private ReportIndexingService reportIndexingService;
+    
+    @Mock
+    private ReportSearchIndex reportSearchIndex;
+    
+    @Mock
+    private AppointmentRepository appointmentRepository;
+    
     @Mock
     private MultipartFile mockPdfFile;
     
-    @InjectMocks
     private TestResultServiceImpl testResultService;
 
+    @BeforeEach
+    void setUp() {
+        // Real storage over the mocked blob store, so hashing and dedup are exercised
+        TestResultPdfStorage pdfStorage = new TestResultPdfStorage(blobStorageService, testResultRepository);
+        testResultService = new TestResultServiceImpl(testResultRepository, appointmentRepository, validationService,
+                pdfStorage, reportIndexingService, reportSearchIndex);
+    }
+
     @Test
     void uploadTestResult_Success() throws IOException {
         // Arrange
@@ -57,8 +87,11 @@ class TestResultServiceImplTest {
 
         // Mock file operations
         when(mockPdfFile.getOriginalFilename()).thenReturn("test_result.pdf");
-        when(mockPdfFile.getSize()).thenReturn(1024L);
-        when(mockPdfFile.getBytes()).thenReturn(new byte[]{1, 2, 3, 4});
+        when(mockPdfFile.getInputStream()).thenReturn(new ByteArrayInputStream(PDF_CONTENT));
+        when(blobStorageService.put(any(InputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return "fs:ab/abc123";
+        });
 
         // Mock repository operations
         TestResult savedTestResult = new TestResult();
@@ -71,7 +104,6 @@ class TestResultServiceImplTest {
         savedTestResult.setStatus(TestResult.TestStatus.COMPLETED);
         
         when(testResultRepository.save(any(TestResult.class))).thenReturn(savedTestResult);
-        when(testResultRepository.findById(1L)).thenReturn(Optional.of(savedTestResult));
 
         // Act
         TestResultResponseDto result = testResultService.uploadTestResult(uploadDto, technicianId);
@@ -88,8 +120,71 @@ class TestResultServiceImplTest {
         // Verify interactions
         verify(validationService).validateTestResultUpload(
             "Blood Test", "Blood", "P456", "D789", technicianId, mockPdfFile);
-        verify(testResultRepository).save(any(TestResult.class));
-        verify(testResultRepository).findById(1L);
+        verify(blobStorageService).put(any(InputStream.class));
+        verify(testResultRepository).save(argThat((TestResult saved) -> "fs:ab/abc123".equals(saved.getBlobRef())
+                && saved.getContentHash() != null && saved.getFileSize() == PDF_CONTENT.length));
+        verify(testResultRepository, never()).findById(any());
+        verify(blobStorageService, never()).delete(anyString());
+    }
+
+    @Test
+    void uploadTestResult_DuplicateContentReusesBlob() throws IOException {
+        String technicianId = "T123";
+        TestResultUploadDto uploadDto = new TestResultUploadDto();
+        uploadDto.setTestName("Blood Test");
+        uploadDto.setTestType("Blood");
+        uploadDto.setPatientId("P456");
+        uploadDto.setDoctorId("D789");
+        uploadDto.setPdfFile(mockPdfFile);
+
+        when(validationService.validateTestResultUpload(
+            anyString(), anyString(), anyString(), anyString(), anyString(), any(MultipartFile.class)))
+            .thenReturn(TestResultValidationService.ValidationResult.valid());
+        when(mockPdfFile.getOriginalFilename()).thenReturn("test_result.pdf");
+        when(mockPdfFile.getInputStream()).thenReturn(new ByteArrayInputStream(PDF_CONTENT));
+        when(blobStorageService.put(any(InputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return "fs:cd/new456";
+        });
+
+        TestResult earlierUpload = new TestResult();
+        earlierUpload.setBlobRef("fs:ab/abc123");
+        when(testResultRepository.findFirstByContentHashAndBlobRefIsNotNull(anyString()))
+            .thenReturn(Optional.of(earlierUpload));
+        when(testResultRepository.save(any(TestResult.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        testResultService.uploadTestResult(uploadDto, technicianId);
+
+        verify(blobStorageService).delete("fs:cd/new456");
+        verify(testResultRepository).save(argThat((TestResult saved) -> "fs:ab/abc123".equals(saved.getBlobRef())));
+    }
+
+    @Test
+    void uploadTestResult_RejectsContentWithoutPdfHeader() throws IOException {
+        String technicianId = "T123";
+        TestResultUploadDto uploadDto = new TestResultUploadDto();
+        uploadDto.setTestName("Blood Test");
+        uploadDto.setTestType("Blood");
+        uploadDto.setPatientId("P456");
+        uploadDto.setDoctorId("D789");
+        uploadDto.setPdfFile(mockPdfFile);
+
+        when(validationService.validateTestResultUpload(
+            anyString(), anyString(), anyString(), anyString(), anyString(), any(MultipartFile.class)))
+            .thenReturn(TestResultValidationService.ValidationResult.valid());
+        when(mockPdfFile.getOriginalFilename()).thenReturn("test_result.pdf");
+        when(mockPdfFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}));
+        when(blobStorageService.put(any(InputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).readAllBytes();
+            return "fs:ab/abc123";
+        });
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            testResultService.uploadTestResult(uploadDto, technicianId);
+        });
+
+        assertEquals("File is not a valid PDF", exception.getMessage());
+        verify(testResultRepository, never()).save(any(TestResult.class));
     }
 
     @Test
@@ -166,4 +261,25 @@ class TestResultServiceImplTest {
         assertEquals("Test result not found with ID: " + testId, exception.getMessage());
         verify(testResultRepository).findById(testId);
     }
+
+    @Test
+    void getTestStatsByPatientId_SumsGroupedCounts() {
+        List<Object[]> rows = List.of(
+            new Object[]{"Blood", 5L, 3L, 1L, 1L, 2L, 4L},
+            new Object[]{"X-Ray", 2L, 2L, 0L, 0L, 0L, 1L});
+        when(testResultRepository.countStatsByPatientId(eq("P456"), any(LocalDateTime.class), any(LocalDateTime.class)))
+            .thenReturn(rows);
+
+        TestResultStatsDto stats = testResultService.getTestStatsByPatientId("P456");
+
+        assertEquals(7, stats.getTotalTests());
+        assertEquals(5, stats.getCompletedTests());
+        assertEquals(5, stats.getPendingTests());
+        assertEquals(1, stats.getReviewedTests());
+        assertEquals(1, stats.getCancelledTests());
+        assertEquals("Blood", stats.getMostFrequentTestType());
+        assertEquals(2, stats.getTestsThisMonth());
+        assertEquals(5, stats.getTestsThisYear());
+        verify(testResultRepository, never()).findByPatientIdOrderByUploadedAtDesc(anyString());
+    }
 }
@@ -0,0 +1,71 @@
+package com.pulseiq.service;
+
+import com.pulseiq.repository.NotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UnreadNotificationCounterTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    private UnreadNotificationCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new UnreadNotificationCounter(notificationRepository, 3_600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        counter.shutdown();
+    }
+
+    @Test
+    void get_LoadsOnceThenReadsFromMemory() {
+        when(notificationRepository.countByRecipientIdAndIsReadFalse("PAT001")).thenReturn(3L);
+
+        assertEquals(3, counter.get("PAT001"));
+        counter.adjustAfterCommit("PAT001", 1);
+        assertEquals(4, counter.get("PAT001"));
+        counter.adjustAfterCommit("PAT001", -10);
+        assertEquals(0, counter.get("PAT001"));
+
+        verify(notificationRepository, times(1)).countByRecipientIdAndIsReadFalse("PAT001");
+    }
+
+    @Test
+    void adjust_IgnoresRecipientsNotCached() {
+        counter.adjustAfterCommit("PAT002", 1);
+
+        assertEquals(0, counter.size());
+    }
+
+    @Test
+    void reconcile_ResetsCachedCountsFromTable() {
+        when(notificationRepository.countByRecipientIdAndIsReadFalse("PAT001")).thenReturn(2L);
+        when(notificationRepository.countByRecipientIdAndIsReadFalse("DOC001")).thenReturn(5L);
+        counter.get("PAT001");
+        counter.get("DOC001");
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"PAT001", 7L});
+        when(notificationRepository.countUnreadByRecipientIdIn(anyCollection())).thenReturn(rows);
+
+        counter.reconcile();
+
+        assertEquals(7, counter.get("PAT001"));
+        assertEquals(0, counter.get("DOC001"));
+    }
+}
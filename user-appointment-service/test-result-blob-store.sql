@@ -0,0 +1,27 @@
+-- Migration script for moving test result PDFs out of the test_results row
+-- PDF content now lives in the blob store (filesystem or PostgreSQL large objects);
+-- the row keeps a reference in blob_ref. Existing pdf_data values are moved by the
+-- application in the background on startup, after which the column can be dropped.
+
+BEGIN;
+
+ALTER TABLE IF EXISTS pulseiq.test_results
+    ADD COLUMN IF NOT EXISTS blob_ref VARCHAR(255);
+
+ALTER TABLE IF EXISTS pulseiq.test_results
+    ALTER COLUMN pdf_data DROP NOT NULL;
+
+-- SHA-256 of the PDF; identical uploads share one blob
+ALTER TABLE IF EXISTS pulseiq.test_results
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS idx_test_results_content_hash
+    ON pulseiq.test_results (content_hash);
+
+COMMENT ON COLUMN pulseiq.test_results.blob_ref IS 'Blob store reference of the PDF (fs:<path> or lo:<oid>)';
+
+COMMIT;
+
+-- Once no rows have pdf_data left:
+-- SELECT COUNT(*) FROM pulseiq.test_results WHERE pdf_data IS NOT NULL;
+-- ALTER TABLE pulseiq.test_results DROP COLUMN pdf_data;